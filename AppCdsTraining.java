@@ -0,0 +1,33 @@
+package com.regnosys.drr.examples;
+
+import java.io.IOException;
+
+/**
+ * Training run for the AppCDS (class-data sharing) archive used by the launch scripts.
+ *
+ * Pushes a representative trade through the full pipeline - load, workflow step creation, post-processing,
+ * reportable events and the CFTC Part 45 report, for both NEW_TRADE and TERMINATION - so every class a
+ * report run needs is loaded before the JVM exits and dumps the archive. Run it via scripts/train-appcds.sh,
+ * which adds -XX:ArchiveClassesAtExit.
+ */
+public class AppCdsTraining {
+
+    static final String DEFAULT_TRAINING_TRADE = "result-json-files/fpml-5-10/record-keeping/products/rates/IR-IRS-Fixed-Float-ex01.json";
+
+    public static void main(String[] args) throws IOException {
+        String tradePath = args.length > 0 ? args[0] : DEFAULT_TRAINING_TRADE;
+        long start = System.currentTimeMillis();
+
+        System.out.println("=== AppCDS training run: " + tradePath + " ===");
+        DrrReportingRuntime runtime = DrrReportingRuntime.get();
+
+        CFTCNewTradeAndTerminationReports lifecycleReports = runtime.getInstance(CFTCNewTradeAndTerminationReports.class);
+        lifecycleReports.createNewTradeReportableEventAndRunReport(tradePath);
+        lifecycleReports.createTerminationReportableEventAndRunReport(tradePath);
+
+        SimplifiedCFTCReportingService simplifiedService = runtime.getInstance(SimplifiedCFTCReportingService.class);
+        simplifiedService.generateCFTCReport(tradePath);
+
+        System.out.println("✓ Training run completed in " + (System.currentTimeMillis() - start) + "ms");
+    }
+}
@@ -6,17 +6,19 @@ import cdm.event.common.*;
 import cdm.event.workflow.WorkflowStep;
 import cdm.product.template.TradableProduct;
 import drr.regulation.common.ReportableEvent;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.io.Resources;
 import com.regnosys.rosetta.common.serialisation.RosettaObjectMapper;
 import com.rosetta.model.lib.RosettaModelObject;
 
 import java.io.IOException;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Comprehensive CDM Structure Validator for DRR
@@ -27,7 +29,6 @@ import java.util.List;
 public class CDMStructureValidator {
 
     private static final ObjectMapper rosettaMapper = RosettaObjectMapper.getNewRosettaObjectMapper();
-    private static final ObjectMapper jsonMapper = new ObjectMapper();
 
     public static void main(String[] args) {
         if (args.length != 1) {
@@ -55,11 +56,11 @@ public class CDMStructureValidator {
             String detectedType = detectFileType(jsonNode);
             System.out.println("[OK] Detected file type: " + detectedType);
             
-            // Step 3: Try loading as different CDM types
-            validateCDMTypes(filePath);
+            // Step 3: Try loading the parsed tree as the CDM types the detected file type allows
+            Map<String, RosettaModelObject> loaded = validateCDMTypes(jsonNode, detectedType);
             
             // Step 4: DRR-specific validations
-            validateForDRR(filePath, detectedType);
+            validateForDRR(loaded, detectedType);
             
             System.out.println("\n" + "=".repeat(60));
             System.out.println("[OK] Validation completed. See diagnostics above.");
@@ -70,14 +71,23 @@ public class CDMStructureValidator {
         }
     }
 
+    /**
+     * Parse the file once into a tree; every CDM type probe below converts this shared tree.
+     */
     private JsonNode loadAndParseJson(String filePath) {
         try {
-            URL url = Resources.getResource(filePath);
-            String json = Resources.toString(url, StandardCharsets.UTF_8);
+            ByteBuffer json = CdmDocumentLoader.readBuffer(filePath);
             
-            JsonNode jsonNode = jsonMapper.readTree(json);
+            JsonNode jsonNode;
+            try (JsonParser parser = MappedJsonInput.createParser(json)) {
+                jsonNode = rosettaMapper.readTree(parser);
+            }
+            if (jsonNode == null) {
+                System.err.println("[FAIL] File is empty: " + filePath);
+                return null;
+            }
             System.out.println("[OK] JSON is well-formed");
-            System.out.println("  File size: " + json.length() + " characters");
+            System.out.println("  File size: " + json.remaining() + " bytes");
             System.out.println("  Root fields: " + jsonNode.size());
             
             // Show root field names for debugging
@@ -133,30 +143,64 @@ public class CDMStructureValidator {
         return "Unknown";
     }
 
-    private void validateCDMTypes(String filePath) {
+    /**
+     * Convert the shared tree into each candidate CDM type. Candidates ruled out by the detected
+     * file type are skipped; an "Unknown" verdict probes all of them.
+     *
+     * @return the successfully loaded objects by type name, reference-resolved where resolution succeeded
+     */
+    private Map<String, RosettaModelObject> validateCDMTypes(JsonNode jsonNode, String detectedType) {
         System.out.println("\n--- CDM Type Validation ---");
         
-        tryLoadAs(TradeState.class, filePath, "TradeState");
-        tryLoadAs(Trade.class, filePath, "Trade");
-        tryLoadAs(ReportableEvent.class, filePath, "ReportableEvent");
-        tryLoadAs(WorkflowStep.class, filePath, "WorkflowStep");
-        tryLoadAs(BusinessEvent.class, filePath, "BusinessEvent");
+        List<String> candidates = candidateTypes(detectedType);
+        Map<String, RosettaModelObject> loaded = new LinkedHashMap<>();
+        tryLoadAs(TradeState.class, jsonNode, "TradeState", candidates, loaded);
+        tryLoadAs(Trade.class, jsonNode, "Trade", candidates, loaded);
+        tryLoadAs(ReportableEvent.class, jsonNode, "ReportableEvent", candidates, loaded);
+        tryLoadAs(WorkflowStep.class, jsonNode, "WorkflowStep", candidates, loaded);
+        tryLoadAs(BusinessEvent.class, jsonNode, "BusinessEvent", candidates, loaded);
+        return loaded;
     }
 
-    private <T extends RosettaModelObject> boolean tryLoadAs(Class<T> clazz, String filePath, String typeName) {
+    private List<String> candidateTypes(String detectedType) {
+        switch (detectedType) {
+            case "ReportableEvent":
+                return Arrays.asList("ReportableEvent");
+            case "WorkflowStep":
+                return Arrays.asList("WorkflowStep");
+            case "TradeState":
+                return Arrays.asList("TradeState");
+            case "Trade":
+                // 'trade' without 'state' is usually a TradeState without a state block
+                return Arrays.asList("TradeState", "Trade");
+            case "WorkflowStep/EventInstruction":
+                return Arrays.asList("WorkflowStep", "BusinessEvent");
+            default:
+                return Arrays.asList("TradeState", "Trade", "ReportableEvent", "WorkflowStep", "BusinessEvent");
+        }
+    }
+
+    private <T extends RosettaModelObject> boolean tryLoadAs(Class<T> clazz, JsonNode jsonNode, String typeName,
+                                                            List<String> candidates, Map<String, RosettaModelObject> loaded) {
+        if (!candidates.contains(typeName)) {
+            System.out.println("[SKIP] " + typeName + " ruled out by detected file type");
+            return false;
+        }
         try {
-            T object = ResourcesUtils.getObject(clazz, filePath);
+            T object = rosettaMapper.treeToValue(jsonNode, clazz);
             System.out.println("[OK] Successfully loaded as " + typeName);
             
             try {
-                T resolved = ResourcesUtils.getObjectAndResolveReferences(clazz, filePath);
+                T resolved = CdmDocumentLoader.resolveReferences(object);
                 System.out.println("[OK] Reference resolution successful for " + typeName);
                 validateSpecificType(resolved, typeName);
+                loaded.put(typeName, resolved);
                 return true;
                 
             } catch (Exception e) {
                 System.out.println("[WARN] Reference resolution failed for " + typeName + ": " + e.getMessage());
                 validateSpecificType(object, typeName);
+                loaded.put(typeName, object);
                 return true;
             }
             
@@ -395,10 +439,10 @@ public class CDMStructureValidator {
         }
     }
 
-    private void validateForDRR(String filePath, String detectedType) {
+    private void validateForDRR(Map<String, RosettaModelObject> loaded, String detectedType) {
         System.out.println("\n--- DRR-Specific Validation ---");
         
-        Trade trade = extractTradeForDRR(filePath, detectedType);
+        Trade trade = extractTradeForDRR(loaded, detectedType);
         
         if (trade == null) {
             System.out.println("[CRITICAL] Cannot extract Trade object for DRR processing");
@@ -410,15 +454,19 @@ public class CDMStructureValidator {
         }
     }
 
-    private Trade extractTradeForDRR(String filePath, String detectedType) {
+    /**
+     * Reuse the objects already loaded from the shared tree instead of reloading the file.
+     */
+    private Trade extractTradeForDRR(Map<String, RosettaModelObject> loaded, String detectedType) {
         try {
             switch (detectedType) {
                 case "TradeState":
-                    TradeState ts = ResourcesUtils.getObjectAndResolveReferences(TradeState.class, filePath);
-                    return ts.getTrade();
-                    
                 case "Trade":
-                    return ResourcesUtils.getObjectAndResolveReferences(Trade.class, filePath);
+                    TradeState ts = (TradeState) loaded.get("TradeState");
+                    if (ts != null && ts.getTrade() != null) {
+                        return ts.getTrade();
+                    }
+                    return (Trade) loaded.get("Trade");
                     
                 default:
                     return null;
@@ -10,18 +10,19 @@ import cdm.event.workflow.functions.Create_AcceptedWorkflowStepFromInstruction;
 import cdm.product.common.settlement.PriceQuantity;
 import cdm.product.template.TradableProduct;
 import cdm.observable.asset.Money;
-import com.regnosys.drr.examples.CFTCPart45ExampleReport;
-import com.google.inject.Guice;
 import com.google.inject.Inject;
-import com.google.inject.Injector;
-import com.regnosys.drr.DrrRuntimeModuleExternalApi;
-import com.regnosys.drr.examples.util.ResourcesUtils;
+import com.regnosys.drr.examples.util.CdmObjectCache;
+import com.regnosys.drr.examples.util.DuplicateEventFilter;
+import com.regnosys.drr.examples.util.ReportingWriteAheadLog;
+import com.regnosys.drr.examples.util.TradeIdentifierService;
+import com.regnosys.drr.examples.util.TradeStateStore;
 import com.regnosys.rosetta.common.postprocess.WorkflowPostProcessor;
 import com.rosetta.model.lib.RosettaModelObject;
 import com.rosetta.model.lib.RosettaModelObjectBuilder;
 import com.rosetta.model.lib.records.Date;
 import com.rosetta.model.metafields.FieldWithMetaString;
 import com.rosetta.model.metafields.MetaFields;
+import drr.regulation.cftc.rewrite.CFTCPart45TransactionReport;
 import drr.regulation.common.*;
 import drr.enrichment.common.trade.functions.Create_ReportableEvents;
 import org.slf4j.Logger;
@@ -29,14 +30,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Paths;
 import java.time.LocalTime;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 
@@ -51,14 +53,33 @@ public class CFTCNewTradeAndTerminationReports {
     // Enhanced configuration for production
     private final ProductionConfig config;
 
+    // UTI / event id generation, pluggable for tests or other id schemes. Ids are derived from the input, so a
+    // rerun of the same input reproduces the same reports
+    TradeIdentifierService identifiers = TradeIdentifierService.shared();
+
+    // Resent copies of an input trade are dropped at load time, shared by all pipeline instances
+    DuplicateEventFilter duplicateEvents = DuplicateEventFilter.shared();
+
+    // Optional write-ahead log (-Ddrr.wal.dir): reports already emitted by an earlier, interrupted run are suppressed
+    private ReportingWriteAheadLog writeAheadLog;
+    private final long checkpointRecords = Long.getLong("drr.wal.checkpointRecords", 10_000);
+
+    // Optional trade state store (-Ddrr.store.dir): the after state of every reported event, by UTI, so a later
+    // lifecycle event can start from the stored trade instead of the original trade file
+    private TradeStateStore tradeStateStore;
+
     public CFTCNewTradeAndTerminationReports() {
         this.config = new ProductionConfig();
     }
 
     public static void main(String[] args) throws IOException {
         if (args.length < 1) {
-            System.err.println("Usage: java CFTCNewTradeAndTerminationReports <event-type> [trade-json-path]");
-            System.err.println("Event types: NEW_TRADE, TERMINATION, ALL");
+            System.err.println("Usage: java CFTCNewTradeAndTerminationReports <event-type> [trade-json-path | uti] [amended-trade-json-path]");
+            System.err.println("Event types: NEW_TRADE, TERMINATION, ALL (with an amended trade, ALL also reports a MODIFY between them),");
+            System.err.println("  TERMINATION_UTI (terminates the latest stored state of the UTI, requires -Ddrr.store.dir)");
+            System.err.println("  -Ddrr.warmup=true runs the JIT warm-up before processing (see ReportingWarmup)");
+            System.err.println("  -Ddrr.wal.dir=<dir> logs emitted reports so a rerun after a crash skips them (see ReportingWriteAheadLog)");
+            System.err.println("  -Ddrr.store.dir=<dir> stores the after state of every reported event by UTI (see TradeStateStore)");
             System.err.println("Default trade file: result-json-files/fpml-5-10/record-keeping/products/rates/IR-IRS-Fixed-Float-ex01.json");
             System.exit(1);
         }
@@ -66,33 +87,150 @@ public class CFTCNewTradeAndTerminationReports {
         String eventType = args[0];
         String tradePath = args.length > 1 ? args[1] : "result-json-files/fpml-5-10/record-keeping/products/rates/IR-IRS-Fixed-Float-ex01.json";
 
-        // Initialise guice for dependency injection 
-        Injector injector = Guice.createInjector(new DrrRuntimeModuleExternalApi());
-        // Get dependency injected instance 
-        CFTCNewTradeAndTerminationReports example = injector.getInstance(CFTCNewTradeAndTerminationReports.class);
+        // Get dependency injected instance from the shared DRR runtime
+        CFTCNewTradeAndTerminationReports example = DrrReportingRuntime.get().getInstance(CFTCNewTradeAndTerminationReports.class);
+        String walDir = System.getProperty("drr.wal.dir");
+        if (walDir != null) {
+            if (DrrReportingRuntime.get().getReportSink() == null) {
+                logger.warn("⚠ Write-ahead log without a report sink (-Ddrr.sink.dir): reports go to stdout, which is not fsynced, "
+                        + "so a crash can lose reports the log records as emitted");
+            }
+            example.openWriteAheadLog(ReportingWriteAheadLog.open(Paths.get(walDir),
+                    Integer.getInteger("drr.wal.batchSize", 256), Long.getLong("drr.wal.maxDelayMillis", 50),
+                    TimeUnit.HOURS.toMillis(Long.getLong("drr.wal.retentionHours", 24 * 7)),
+                    DrrReportingRuntime.get()::flushReports));
+        }
+
+        String storeDir = System.getProperty("drr.store.dir");
+        if (storeDir != null) {
+            example.openTradeStateStore(TradeStateStore.open(Paths.get(storeDir), Integer.getInteger("drr.store.hotCapacity", 10_000)));
+        }
+
+        // Optional JIT warm-up (-Ddrr.warmup=true) so the first real trade runs at steady-state speed
+        if (Boolean.getBoolean("drr.warmup")) {
+            ReportingWarmup.fromSystemProperties().run();
+        }
 
         // Run examples based on event type
-        switch (eventType.toUpperCase()) {
-            case "NEW_TRADE":
-                logger.info("=== GENERATING ENHANCED NEW TRADE REPORT ===");
-                example.createNewTradeReportableEventAndRunReport(tradePath);
-                break;
-            case "TERMINATION":
-                logger.info("=== GENERATING ENHANCED TERMINATION REPORT ===");
-                example.createTerminationReportableEventAndRunReport(tradePath);
-                break;
-            case "ALL":
-                logger.info("=== GENERATING ALL ENHANCED REPORTS ===");
-                example.createNewTradeReportableEventAndRunReport(tradePath);
-                System.out.println("\n" + "=".repeat(50) + "\n");
-                example.createTerminationReportableEventAndRunReport(tradePath);
-                break;
-            default:
-                System.err.println("Invalid event type: " + eventType);
-                System.exit(1);
+        try {
+            switch (eventType.toUpperCase()) {
+                case "NEW_TRADE":
+                    logger.info("=== GENERATING ENHANCED NEW TRADE REPORT ===");
+                    example.createNewTradeReportableEventAndRunReport(tradePath);
+                    break;
+                case "TERMINATION":
+                    logger.info("=== GENERATING ENHANCED TERMINATION REPORT ===");
+                    example.createTerminationReportableEventAndRunReport(tradePath);
+                    break;
+                case "TERMINATION_UTI":
+                    if (args.length < 2 || storeDir == null) {
+                        System.err.println("TERMINATION_UTI needs a UTI argument and -Ddrr.store.dir");
+                        System.exit(1);
+                    }
+                    logger.info("=== GENERATING ENHANCED TERMINATION REPORT FOR STORED UTI ===");
+                    example.createTerminationReportableEventAndRunReportForUti(args[1]);
+                    break;
+                case "ALL":
+                    logger.info("=== GENERATING ALL ENHANCED REPORTS ===");
+                    List<LifecycleChain.Step> steps = new ArrayList<>();
+                    steps.add(LifecycleChain.NEW_TRADE);
+                    if (args.length > 2) {
+                        steps.add(LifecycleChain.modification(example.loadAndValidateTradeState(args[2])));
+                    }
+                    steps.add(LifecycleChain.TERMINATION);
+                    example.runLifecycleChain(tradePath, steps);
+                    break;
+                default:
+                    System.err.println("Invalid event type: " + eventType);
+                    System.exit(1);
+            }
+        } finally {
+            example.closeWriteAheadLog();
+            example.closeTradeStateStore();
         }
     }
 
+    /**
+     * Log every emitted report to the write-ahead log and skip reports it already records as emitted.
+     */
+    void openWriteAheadLog(ReportingWriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+        logger.info("✓ Write-ahead log replayed: {} record(s) since last checkpoint", writeAheadLog.getRecordsSinceCheckpoint());
+    }
+
+    void closeWriteAheadLog() throws IOException {
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+            writeAheadLog = null;
+        }
+    }
+
+    /**
+     * Store the after state of every reported event under its UTI.
+     */
+    void openTradeStateStore(TradeStateStore tradeStateStore) {
+        this.tradeStateStore = tradeStateStore;
+        logger.info("✓ Trade state store opened: {} stored state(s)", tradeStateStore.size());
+    }
+
+    void closeTradeStateStore() throws IOException {
+        if (tradeStateStore != null) {
+            tradeStateStore.close();
+            tradeStateStore = null;
+        }
+    }
+
+    /**
+     * Store the after state of a reported workflow step as the next version of its UTI (a no-op without a
+     * store). The new UTI of a new trade is taken from its after state.
+     */
+    private void storeAfterState(String eventType, WorkflowStep workflowStep) throws IOException {
+        if (tradeStateStore == null) {
+            return;
+        }
+        TradeState after = LifecycleChain.afterState(workflowStep);
+        String uti = after == null ? null : TradeStateStore.utiOf(after);
+        if (uti == null) {
+            logger.warn("⚠ {} produced no after state with a UTI - nothing stored", eventType);
+            return;
+        }
+        int version = tradeStateStore.putNextVersion(uti, after);
+        tradeStateStore.flush();
+        logger.info("✓ Stored {} after state as version {} of UTI {}", eventType, version, uti);
+    }
+
+    /**
+     * Load the trade once and run the lifecycle steps as one chain, each step starting from the previous
+     * step's after state.
+     */
+    void runLifecycleChain(String tradePath, List<LifecycleChain.Step> steps) throws IOException {
+        TradeState tradeState = loadAndValidateTradeState(tradePath);
+        logger.info("✓ Successfully loaded and validated TradeState");
+        String inputKey = inputKey(tradePath, tradeState);
+        String chain = steps.stream().map(LifecycleChain.Step::getName).collect(Collectors.joining(">"));
+        if (!isFirstOccurrence(tradeState, chain)) {
+            return;
+        }
+
+        for (LifecycleChain.Step step : steps) {
+            recordStage(inputEventId(inputKey, step.getName(), -1), ReportingWriteAheadLog.Stage.RECEIVED);
+        }
+
+        List<LifecycleChain.StepResult> results = new LifecycleChain(this).run(tradeState, steps);
+        for (LifecycleChain.StepResult result : results) {
+            logger.info("=== {} ===", result.getName());
+            recordStage(inputEventId(inputKey, result.getName(), -1), ReportingWriteAheadLog.Stage.EVENTS_CREATED);
+            List<CFTCPart45TransactionReport> reports = result.getReports();
+            for (int i = 0; i < reports.size(); i++) {
+                emitReport(inputEventId(inputKey, result.getName(), i), reports.get(i));
+            }
+            syncWriteAheadLog();
+            storeAfterState(result.getName(), result.getWorkflowStep());
+            System.out.println("\n" + "=".repeat(50) + "\n");
+        }
+        logger.info("✓ Lifecycle chain completed: {} step(s)", results.size());
+    }
+
     /**
      * Enhanced NEW TRADE with 100% field coverage
      */
@@ -103,12 +241,17 @@ public class CFTCNewTradeAndTerminationReports {
             // 1. Load and validate trade state
             TradeState tradeState = loadAndValidateTradeState(tradePath);
             logger.info("✓ Successfully loaded and validated TradeState");
+            String inputKey = inputKey(tradePath, tradeState);
+            recordStage(inputEventId(inputKey, "NEW_TRADE", -1), ReportingWriteAheadLog.Stage.RECEIVED);
+            if (!isFirstOccurrence(tradeState, "NEW_TRADE")) {
+                return;
+            }
 
             // 2. Create enhanced instructions for NEW TRADE 
             WorkflowStep workflowStepInstruction = getEnhancedNewTradeInstruction(tradeState);
             logger.info("✓ Created ENHANCED NEW TRADE instruction with production data");
 
-            // 3. Invoke function to create WorkflowStep 
+            // 3. Invoke function to create WorkflowStep
             WorkflowStep workflowStep = postProcess(createWorkflowStep.evaluate(workflowStepInstruction));
             logger.info("✓ Generated WorkflowStep with business event");
 
@@ -126,16 +269,10 @@ public class CFTCNewTradeAndTerminationReports {
 
             // 6. Generate reports with validation
             logger.info("Generating ENHANCED CFTC Part 45 reports...");
-            reportableEventsWithReportableInformation.forEach(reportableEvent -> {
-                try {
-                    logFieldCoverage(reportableEvent, tradeState, "NEW_TRADE");
-                    CFTCPart45ExampleReport cftcPart45ExampleReport = new CFTCPart45ExampleReport();
-                    cftcPart45ExampleReport.runReport(reportableEvent);
-                } catch (IOException e) {
-                    logger.error("Failed to generate CFTC report", e);
-                    throw new RuntimeException(e);
-                }
-            });
+            recordStage(inputEventId(inputKey, "NEW_TRADE", -1), ReportingWriteAheadLog.Stage.EVENTS_CREATED);
+            reportableEventsWithReportableInformation.forEach(reportableEvent -> logFieldCoverage(reportableEvent, tradeState, "NEW_TRADE"));
+            printReports(inputKey, "NEW_TRADE", DrrReportingRuntime.get().getReportGenerator().generateReports(reportableEventsWithReportableInformation));
+            storeAfterState("NEW_TRADE", workflowStep);
             logger.info("✓ ENHANCED NEW TRADE report generation completed successfully");
             
         } catch (Exception e) {
@@ -154,52 +291,159 @@ public class CFTCNewTradeAndTerminationReports {
             // 1. Load and validate trade state
             TradeState tradeState = loadAndValidateTradeState(tradePath);
             logger.info("✓ Successfully loaded and validated TradeState");
+            reportTermination(inputKey(tradePath, tradeState), tradeState);
+        } catch (Exception e) {
+            logger.error("Failed to process ENHANCED TERMINATION event", e);
+            throw e;
+        }
+    }
 
-            // 2. Create enhanced instructions for TERMINATION
-            WorkflowStep workflowStepInstruction = getEnhancedTerminationInstruction(tradeState);
-            logger.info("✓ Created ENHANCED TERMINATION instruction");
+    /**
+     * TERMINATION of the latest stored state of a UTI, e.g. of a trade reported as NEW_TRADE by an earlier
+     * run with the same -Ddrr.store.dir.
+     */
+    void createTerminationReportableEventAndRunReportForUti(String uti) throws IOException {
+        logger.info("Processing ENHANCED TERMINATION event for stored UTI: {}", uti);
 
-            // 3. Invoke function to create WorkflowStep 
-            WorkflowStep workflowStep = postProcess(createWorkflowStep.evaluate(workflowStepInstruction));
-            logger.info("✓ Generated WorkflowStep with business event");
+        try {
+            // 1. Latest stored trade state of the UTI
+            TradeState tradeState = tradeStateStore.getLatest(uti);
+            if (tradeState == null) {
+                throw new IllegalArgumentException("No stored TradeState for UTI " + uti);
+            }
+            logger.info("✓ Loaded version {} of UTI {} from the trade state store", tradeStateStore.latestVersion(uti), uti);
+            validateIRSFields(tradeState);
+            reportTermination(inputKey("uti:" + uti, tradeState), tradeState);
+        } catch (Exception e) {
+            logger.error("Failed to process ENHANCED TERMINATION event for UTI {}", uti, e);
+            throw e;
+        }
+    }
 
-            // 4. Invoke function to convert WorkflowStep into ReportableEvents 
-            List<? extends ReportableEvent> reportableEvents = createReportableEvents.evaluate(workflowStep);
-            logger.info("✓ Generated {} reportable events", reportableEvents.size());
+    /**
+     * TERMINATION steps 2-6 for a loaded trade state, storing the terminated state when a store is open.
+     */
+    private void reportTermination(String inputKey, TradeState tradeState) throws IOException {
+        recordStage(inputEventId(inputKey, "TERMINATION", -1), ReportingWriteAheadLog.Stage.RECEIVED);
+        if (!isFirstOccurrence(tradeState, "TERMINATION")) {
+            return;
+        }
 
-            // 5. Add ENHANCED ReportableInformation 
-            List<? extends ReportableEvent> reportableEventsWithReportableInformation =
-                    reportableEvents.stream()
-                            .map(reportableEvent -> reportableEvent.toBuilder()
-                                    .setReportableInformation(getEnhancedReportableInformation(tradeState)).build())
-                            .collect(Collectors.toList());
-            logger.info("✓ Enhanced events with comprehensive reportable information");
+        // 2. Create enhanced instructions for TERMINATION
+        WorkflowStep workflowStepInstruction = getEnhancedTerminationInstruction(tradeState);
+        logger.info("✓ Created ENHANCED TERMINATION instruction");
 
-            // 6. Generate reports with validation
-            logger.info("Generating ENHANCED CFTC Part 45 reports...");
-            reportableEventsWithReportableInformation.forEach(reportableEvent -> {
-                try {
-                    logFieldCoverage(reportableEvent, tradeState, "TERMINATION");
-                    CFTCPart45ExampleReport cftcPart45ExampleReport = new CFTCPart45ExampleReport();
-                    cftcPart45ExampleReport.runReport(reportableEvent);
-                } catch (IOException e) {
-                    logger.error("Failed to generate CFTC report", e);
-                    throw new RuntimeException(e);
-                }
-            });
-            logger.info("✓ ENHANCED TERMINATION report generation completed successfully");
-            
-        } catch (Exception e) {
-            logger.error("Failed to process ENHANCED TERMINATION event", e);
-            throw e;
+        // 3. Invoke function to create WorkflowStep
+        WorkflowStep workflowStep = postProcess(createWorkflowStep.evaluate(workflowStepInstruction));
+        logger.info("✓ Generated WorkflowStep with business event");
+
+        // 4. Invoke function to convert WorkflowStep into ReportableEvents 
+        List<? extends ReportableEvent> reportableEvents = createReportableEvents.evaluate(workflowStep);
+        logger.info("✓ Generated {} reportable events", reportableEvents.size());
+
+        // 5. Add ENHANCED ReportableInformation 
+        List<? extends ReportableEvent> reportableEventsWithReportableInformation =
+                reportableEvents.stream()
+                        .map(reportableEvent -> reportableEvent.toBuilder()
+                                .setReportableInformation(getEnhancedReportableInformation(tradeState)).build())
+                        .collect(Collectors.toList());
+        logger.info("✓ Enhanced events with comprehensive reportable information");
+
+        // 6. Generate reports with validation
+        logger.info("Generating ENHANCED CFTC Part 45 reports...");
+        recordStage(inputEventId(inputKey, "TERMINATION", -1), ReportingWriteAheadLog.Stage.EVENTS_CREATED);
+        reportableEventsWithReportableInformation.forEach(reportableEvent -> logFieldCoverage(reportableEvent, tradeState, "TERMINATION"));
+        printReports(inputKey, "TERMINATION", DrrReportingRuntime.get().getReportGenerator().generateReports(reportableEventsWithReportableInformation));
+        storeAfterState("TERMINATION", workflowStep);
+        logger.info("✓ ENHANCED TERMINATION report generation completed successfully");
+    }
+
+    /**
+     * Print the batch results in input order. Every report is printed before failures are raised.
+     */
+    private void printReports(String inputKey, String eventType, List<ReportResult> results) throws IOException {
+        long failed = 0;
+        for (ReportResult result : results) {
+            if (result.isSuccess()) {
+                emitReport(inputEventId(inputKey, eventType, result.getIndex()), result.getReport());
+            } else {
+                failed++;
+                logger.error("Failed to generate CFTC report for reportable event {}", result.getIndex(), result.getError());
+            }
+        }
+        syncWriteAheadLog();
+        if (failed > 0) {
+            throw new IllegalStateException(failed + " of " + results.size() + " CFTC report(s) failed");
+        }
+    }
+
+    /**
+     * Input event id of a report (or, with index -1, of the whole input): stable across reruns of the same
+     * input, unlike the generated event identifiers, so the write-ahead log can recognise reports emitted
+     * before a restart.
+     */
+    private static String inputEventId(String inputKey, String eventType, int index) {
+        return index < 0 ? inputKey + "#" + eventType : inputKey + "#" + eventType + "#" + index;
+    }
+
+    /**
+     * Write-ahead log key of an input: its path plus the content hash of the loaded trade, so a changed file
+     * at the same path is a new input and is reported again.
+     */
+    private static String inputKey(String tradePath, TradeState tradeState) {
+        return tradePath + "@" + DuplicateEventFilter.contentHash(tradeState);
+    }
+
+    private void recordStage(String inputEventId, ReportingWriteAheadLog.Stage stage) throws IOException {
+        if (writeAheadLog != null) {
+            writeAheadLog.record(inputEventId, stage);
         }
     }
 
     /**
-     * Load and validate TradeState for production quality
+     * Emit one report unless the write-ahead log records it as already emitted, then log it as emitted.
+     * A suppressed report is compared with the emitted one by hash: ids and timestamps are derived from the
+     * input, so a difference means the rerun did not reproduce the emitted report and is logged.
+     */
+    private void emitReport(String inputEventId, CFTCPart45TransactionReport report) throws IOException {
+        if (writeAheadLog != null && writeAheadLog.isEmitted(inputEventId)) {
+            String emittedHash = writeAheadLog.emittedReportHash(inputEventId);
+            String reportHash = ReportingWriteAheadLog.reportHash(report);
+            if (reportHash.equals(emittedHash)) {
+                logger.info("Skipping report for {} - already emitted (hash {})", inputEventId, emittedHash);
+            } else {
+                logger.warn("⚠ Skipping report for {} - already emitted, but the regenerated report differs (hash {}, emitted {})",
+                        inputEventId, reportHash, emittedHash);
+            }
+            return;
+        }
+        DrrReportingRuntime.get().emitReport(report);
+        if (writeAheadLog != null) {
+            writeAheadLog.recordEmitted(inputEventId, report);
+        }
+    }
+
+    /**
+     * Make the batch's log records durable, checkpointing once the log has grown past drr.wal.checkpointRecords.
+     */
+    private void syncWriteAheadLog() throws IOException {
+        if (writeAheadLog == null) {
+            return;
+        }
+        // Flushes the report sink before the log, see ReportingWriteAheadLog
+        writeAheadLog.sync();
+        if (writeAheadLog.getRecordsSinceCheckpoint() >= checkpointRecords) {
+            writeAheadLog.checkpoint();
+        }
+    }
+
+    /**
+     * Load and validate TradeState for production quality.
+     * Goes through the shared object cache, so "ALL" mode parses and resolves the trade file only once.
      */
     private TradeState loadAndValidateTradeState(String tradePath) throws IOException {
-        TradeState tradeState = ResourcesUtils.getObjectAndResolveReferences(TradeState.class, tradePath);
+        TradeState tradeState = CdmObjectCache.shared().load(tradePath, TradeState.class, true);
+        logger.info("Object cache: {}", CdmObjectCache.shared());
         
         // Validate critical IRS fields are present
         validateIRSFields(tradeState);
@@ -207,6 +451,83 @@ public class CFTCNewTradeAndTerminationReports {
         return tradeState;
     }
 
+    /**
+     * NEW TRADE steps 2-5 without the step logging: instruction, workflow step, post-processing, reportable
+     * events and reportable information. Used by the warm-up and batch paths.
+     */
+    List<ReportableEvent> createNewTradeReportableEvents(TradeState tradeState) {
+        return createEnrichedReportableEvents(tradeState, createAcceptedWorkflowStep(getEnhancedNewTradeInstruction(tradeState)));
+    }
+
+    /**
+     * TERMINATION steps 2-5 without the step logging, see {@link #createNewTradeReportableEvents(TradeState)}.
+     */
+    List<ReportableEvent> createTerminationReportableEvents(TradeState tradeState) {
+        return createEnrichedReportableEvents(tradeState, createAcceptedWorkflowStep(getEnhancedTerminationInstruction(tradeState)));
+    }
+
+    /**
+     * MODIFY steps 2-5 without the step logging: the amendment of previousTradeState to amendedTradeState.
+     */
+    List<ReportableEvent> createModificationReportableEvents(TradeState previousTradeState, TradeState amendedTradeState) {
+        return createEnrichedReportableEvents(amendedTradeState,
+                createAcceptedWorkflowStep(getEnhancedModificationInstruction(previousTradeState, amendedTradeState)));
+    }
+
+    /**
+     * Duplicate check right after loading, before any UTI or event id is generated: false (and logged) when
+     * the same event type was already processed for a trade with the same upstream trade identifiers and the
+     * same content, so no DRR function is evaluated for the resend.
+     */
+    boolean isFirstOccurrence(TradeState tradeState, String eventType) {
+        String identity = eventType + "|" + upstreamTradeIdentifiers(tradeState);
+        if (duplicateEvents.firstOccurrence(identity, tradeState)) {
+            return true;
+        }
+        logger.warn("⚠ Duplicate {} input {} dropped before instruction creation ({})", eventType, identity, duplicateEvents);
+        return false;
+    }
+
+    /**
+     * The trade identifiers carried by the input trade, e.g. "UniqueTransactionIdentifier:ABC123,...".
+     */
+    private static String upstreamTradeIdentifiers(TradeState tradeState) {
+        if (tradeState.getTrade() == null || tradeState.getTrade().getTradeIdentifier() == null) {
+            return "";
+        }
+        List<String> identifiers = new ArrayList<>();
+        for (TradeIdentifier tradeIdentifier : tradeState.getTrade().getTradeIdentifier()) {
+            if (tradeIdentifier.getAssignedIdentifier() == null) {
+                continue;
+            }
+            for (AssignedIdentifier assigned : tradeIdentifier.getAssignedIdentifier()) {
+                if (assigned.getIdentifier() != null && assigned.getIdentifier().getValue() != null) {
+                    identifiers.add(tradeIdentifier.getIdentifierType() + ":" + assigned.getIdentifier().getValue());
+                }
+            }
+        }
+        Collections.sort(identifiers);
+        return String.join(",", identifiers);
+    }
+
+    /**
+     * Step 3: accepted WorkflowStep from the instruction, post-processed.
+     */
+    WorkflowStep createAcceptedWorkflowStep(WorkflowStep workflowStepInstruction) {
+        return postProcess(createWorkflowStep.evaluate(workflowStepInstruction));
+    }
+
+    /**
+     * Steps 4-5: reportable events of the workflow step, enriched with the trade's reportable information.
+     */
+    List<ReportableEvent> createEnrichedReportableEvents(TradeState tradeState, WorkflowStep workflowStep) {
+        ReportableInformation reportableInformation = getEnhancedReportableInformation(tradeState);
+        return createReportableEvents.evaluate(workflowStep).stream()
+                .map(reportableEvent -> reportableEvent.toBuilder()
+                        .setReportableInformation(reportableInformation).build())
+                .collect(Collectors.toList());
+    }
+
     /**
      * Validate IRS-specific fields for complete coverage
      */
@@ -230,12 +551,13 @@ public class CFTCNewTradeAndTerminationReports {
         logger.info("✓ IRS field validation completed");
     }
 
-    private WorkflowStep getEnhancedNewTradeInstruction(TradeState tradeState) {
+    WorkflowStep getEnhancedNewTradeInstruction(TradeState tradeState) {
         // Extract actual event date from trade
         Date eventDate = extractEventDate(tradeState);
 
-        // Generate production-quality UTI
-        String productionUTI = generateProductionUTI(tradeState);
+        // Generate production-quality UTI, derived from the trade content like the event id
+        String contentHash = DuplicateEventFilter.contentHash(tradeState);
+        String productionUTI = generateProductionUTI(tradeState, contentHash);
         String reportingPartyLEI = extractReportingPartyLEI(tradeState);
 
         // ExecutionInstruction for NEW TRADE with enhanced identifiers
@@ -266,16 +588,16 @@ public class CFTCNewTradeAndTerminationReports {
                         .setDateTime(ZonedDateTime.of(eventDate.toLocalDate(), LocalTime.of(9, 0), ZoneOffset.UTC.normalized()))
                         .setQualification(EventTimestampQualificationEnum.EVENT_CREATION_DATE_TIME))
                 .addTimestamp(EventTimestamp.builder()
-                        .setDateTime(ZonedDateTime.now(ZoneOffset.UTC))
+                        .setDateTime(extractExecutionDateTime(tradeState))
                         .setQualification(EventTimestampQualificationEnum.EXECUTION_DATE_TIME))
                 .addEventIdentifier(Identifier.builder()
                         .addAssignedIdentifier(AssignedIdentifier.builder()
-                                .setIdentifierValue("ENHANCED_NEW_TRADE_" + generateEventId())))
+                                .setIdentifierValue("ENHANCED_NEW_TRADE_" + generateEventId(eventDate, "NEW_TRADE|" + contentHash))))
                 .build();
     }
 
     
-    private WorkflowStep getEnhancedTerminationInstruction(TradeState tradeState) {
+    WorkflowStep getEnhancedTerminationInstruction(TradeState tradeState) {
         // Extract actual event date from trade
         Date eventDate = extractEventDate(tradeState);
 
@@ -313,11 +635,45 @@ public class CFTCNewTradeAndTerminationReports {
                         .setDateTime(ZonedDateTime.of(eventDate.toLocalDate(), LocalTime.of(9, 0), ZoneOffset.UTC.normalized()))
                         .setQualification(EventTimestampQualificationEnum.EVENT_CREATION_DATE_TIME))
                 .addTimestamp(EventTimestamp.builder()
-                        .setDateTime(ZonedDateTime.now(ZoneOffset.UTC))
+                        .setDateTime(extractExecutionDateTime(tradeState))
+                        .setQualification(EventTimestampQualificationEnum.EXECUTION_DATE_TIME))
+                .addEventIdentifier(Identifier.builder()
+                        .addAssignedIdentifier(AssignedIdentifier.builder()
+                                .setIdentifierValue("ENHANCED_TERMINATION_" + generateEventId(eventDate,
+                                        "TERMINATION|" + DuplicateEventFilter.contentHash(tradeState)))))
+                .build();
+    }
+
+    /**
+     * MODIFY instruction: a terms change from the previous TradeState to the amended product, so DRR reports
+     * it as an amendment (action type, event type and timestamps of a modification, UTI of the previous state).
+     * The execution timestamp is the original execution of the previous state, not the time of the amendment.
+     */
+    WorkflowStep getEnhancedModificationInstruction(TradeState previousTradeState, TradeState amendedTradeState) {
+        Date eventDate = extractEventDate(amendedTradeState);
+
+        Instruction tradeStateInstruction = Instruction.builder()
+                .setBeforeValue(previousTradeState)
+                .setPrimitiveInstruction(PrimitiveInstruction.builder()
+                        .setTermsChange(TermsChangeInstruction.builder()
+                                .setProduct(amendedTradeState.getTrade().getTradableProduct().getProduct())))
+                .build();
+
+        return WorkflowStep.builder()
+                .setProposedEvent(EventInstruction.builder()
+                        .addInstruction(tradeStateInstruction)
+                        .setIntent(EventIntentEnum.ContractTermsAmendment)
+                        .setEventDate(eventDate))
+                .addTimestamp(EventTimestamp.builder()
+                        .setDateTime(ZonedDateTime.of(eventDate.toLocalDate(), LocalTime.of(9, 0), ZoneOffset.UTC.normalized()))
+                        .setQualification(EventTimestampQualificationEnum.EVENT_CREATION_DATE_TIME))
+                .addTimestamp(EventTimestamp.builder()
+                        .setDateTime(extractExecutionDateTime(previousTradeState))
                         .setQualification(EventTimestampQualificationEnum.EXECUTION_DATE_TIME))
                 .addEventIdentifier(Identifier.builder()
                         .addAssignedIdentifier(AssignedIdentifier.builder()
-                                .setIdentifierValue("ENHANCED_TERMINATION_" + generateEventId())))
+                                .setIdentifierValue("ENHANCED_MODIFICATION_" + generateEventId(eventDate, "MODIFY|"
+                                        + DuplicateEventFilter.contentHash(previousTradeState) + "|" + DuplicateEventFilter.contentHash(amendedTradeState)))))
                 .build();
     }
 
@@ -505,12 +861,11 @@ public class CFTCNewTradeAndTerminationReports {
     /**
      * Generate production-quality UTI
      */
-    private String generateProductionUTI(TradeState tradeState) {
+    private String generateProductionUTI(TradeState tradeState, String contentHash) {
         String reportingPartyLEI = extractReportingPartyLEI(tradeState);
-        String timestamp = ZonedDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String uniqueId = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        
-        String uti = String.format("%s%s%s", reportingPartyLEI.substring(0, 12), timestamp, uniqueId);
+        // Full LEI plus a suffix hashed from the trade content (at most 52 characters): unique per trade and
+        // the same on every run, so a reprocessed trade keeps its UTI
+        String uti = identifiers.utiFor(reportingPartyLEI, contentHash);
         logger.info("✓ Generated production UTI: {}", uti);
         return uti;
     }
@@ -532,7 +887,7 @@ public class CFTCNewTradeAndTerminationReports {
         logger.warn("⚠ MISSING CDM DATA: No LEI present in any party within CDM trade structure");
         logger.info("📋 Using placeholder LEI pattern for regulatory reporting");
         // Return placeholder that follows LEI format but indicates missing data
-        return "CDM000000000000000000";
+        return "CDM00000000000000000";
     }
 
     /**
@@ -631,10 +986,31 @@ public class CFTCNewTradeAndTerminationReports {
     }
 
     /**
-     * Generate unique event ID
+     * Execution timestamp of the trade: the execution date time recorded in CDM, or the event date at 09:00 UTC
+     * (the event creation time) when the trade carries none. Never the time of the run, so a trade reports the
+     * same execution timestamp every time it is processed.
+     */
+    private ZonedDateTime extractExecutionDateTime(TradeState tradeState) {
+        if (tradeState.getTrade().getExecution() != null &&
+            !tradeState.getTrade().getExecution().isEmpty() &&
+            tradeState.getTrade().getExecution().get(0).getExecutionDateTime() != null) {
+            ZonedDateTime executionDateTime = tradeState.getTrade().getExecution().get(0).getExecutionDateTime();
+            logger.info("✓ Extracted execution timestamp from CDM: {}", executionDateTime);
+            return executionDateTime;
+        }
+
+        logger.warn("⚠ MISSING CDM DATA: No execution timestamp present in CDM trade structure");
+        logger.info("📋 Using event date at 09:00 UTC as execution timestamp for regulatory reporting");
+        return ZonedDateTime.of(extractEventDate(tradeState).toLocalDate(), LocalTime.of(9, 0), ZoneOffset.UTC.normalized());
+    }
+
+    /**
+     * Generate the event ID of an event, unique per event and input and the same on every run
+     *
+     * @param key the event type and the content hash(es) of its input
      */
-    private String generateEventId() {
-        return ZonedDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS"));
+    private String generateEventId(Date eventDate, String key) {
+        return identifiers.eventIdFor(eventDate.toLocalDate(), key);
     }
 
     /**
@@ -6,9 +6,6 @@ import cdm.event.common.BusinessEvent;
 import cdm.event.common.Trade;
 import cdm.event.common.TradeState;
 import cdm.event.workflow.WorkflowStep;
-import com.google.inject.Guice;
-import com.google.inject.Injector;
-import com.regnosys.drr.DrrRuntimeModuleExternalApi;
 import com.regnosys.drr.examples.util.ResourcesUtils;
 import com.regnosys.rosetta.common.serialisation.RosettaObjectMapper;
 import drr.enrichment.common.trade.functions.Create_ReportableEvents;
@@ -19,16 +16,10 @@ import drr.regulation.common.ReportableInformation;
 import drr.regulation.common.ReportingRegime;
 import drr.regulation.common.SupervisoryBodyEnum;
 import drr.regulation.common.ReportingRoleEnum;
-import drr.regulation.common.ReportingSide;
 import drr.regulation.common.metafields.FieldWithMetaRegimeNameEnum;
 import com.rosetta.model.metafields.FieldWithMetaString;
 import drr.regulation.common.metafields.FieldWithMetaSupervisoryBodyEnum;
 import com.rosetta.model.metafields.MetaFields;
-import drr.enrichment.common.trade.functions.Create_TransactionReportInstruction;
-import drr.regulation.common.functions.ExtractTradeCounterparty;
-import drr.regulation.cftc.rewrite.CFTCPart45TransactionReport;
-import drr.regulation.cftc.rewrite.reports.CFTCPart45ReportFunction;
-import drr.regulation.common.TransactionReportInstruction;
 import drr.regulation.common.ExecutionVenueTypeEnum;
 import drr.regulation.common.ConfirmationMethodEnum;
 import drr.regulation.common.PartyInformation;
@@ -38,16 +29,17 @@ import cdm.base.staticdata.party.PartyIdentifierTypeEnum;
 import cdm.base.staticdata.party.Counterparty;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 
 public class CFTCP45Generator {
 
-    private final Injector injector;
+    private final DrrReportingRuntime runtime;
     private final Create_ReportableEvents createReportableEvents;
 
     CFTCP45Generator() {
-        this.injector = Guice.createInjector(new DrrRuntimeModuleExternalApi());
-        this.createReportableEvents = injector.getInstance(Create_ReportableEvents.class);
+        this.runtime = DrrReportingRuntime.get();
+        this.createReportableEvents = runtime.getCreateReportableEvents();
     }
 
     public static void main(String[] args) throws IOException {
@@ -1083,68 +1075,16 @@ public class CFTCP45Generator {
     }
 
     void runReport(ReportableEvent reportableEvent) throws IOException {
-        // TransactionReportInstruction from ReportableEvent and ReportingSide
-        // For this example, arbitrarily PARTY_1 as the reporting party and PARTY_2 as the reporting counterparty
-        final ReportingSide reportingSide = ReportingSide.builder()
-                .setReportingParty(getCounterparty(reportableEvent, CounterpartyRoleEnum.PARTY_1))
-                .setReportingCounterparty(getCounterparty(reportableEvent, CounterpartyRoleEnum.PARTY_2))
-                .build();
-
-        // Create transaction report instruction
-        final Create_TransactionReportInstruction createInstructionFunc = injector.getInstance(Create_TransactionReportInstruction.class);
-        final TransactionReportInstruction reportInstruction = createInstructionFunc.evaluate(reportableEvent, reportingSide);
-
-        // Generate CFTC Part 45 report
-        final CFTCPart45ReportFunction reportFunc = injector.getInstance(CFTCPart45ReportFunction.class);
-        final CFTCPart45TransactionReport report = reportFunc.evaluate(reportInstruction);
-
-        // Print the report
-        System.out.println("\n=== Generated CFTC Part 45 Report ===");
-        System.out.println(RosettaObjectMapper.getNewRosettaObjectMapper()
-                .writerWithDefaultPrettyPrinter()
-                .writeValueAsString(report));
-        System.out.println("===================================");
+        // PARTY_1 reporting against PARTY_2, counterparties taken by ExtractTradeCounterparty as in batch reporting;
+        // the report goes to the report sink if configured, stdout otherwise
+        runtime.runReport(reportableEvent);
     }
 
-    private ReferenceWithMetaParty getCounterparty(ReportableEvent reportableEvent, CounterpartyRoleEnum party) {
-        try {
-            // Extract directly from ReportableTrade
-            if (reportableEvent.getReportableTrade() != null && 
-                reportableEvent.getReportableTrade().getTrade() != null &&
-                reportableEvent.getReportableTrade().getTrade().getParty() != null &&
-                !reportableEvent.getReportableTrade().getTrade().getParty().isEmpty()) {
-                
-                List<? extends Party> parties = reportableEvent.getReportableTrade().getTrade().getParty();
-                
-                // Get the right party based on role
-                Party targetParty = null;
-                if (party == CounterpartyRoleEnum.PARTY_1 && parties.size() >= 1) {
-                    targetParty = parties.get(0);
-                } else if (party == CounterpartyRoleEnum.PARTY_2 && parties.size() >= 2) {
-                    targetParty = parties.get(1);
-                }
-                
-                if (targetParty != null) {
-                    return ReferenceWithMetaParty.builder().setValue(targetParty).build();
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("Warning: Could not extract party from ReportableTrade: " + e.getMessage());
-        }
-        
-        // Fallback with dummy data if extraction fails
-        String lei = party == CounterpartyRoleEnum.PARTY_1 ? "DUMMY0000000000LEI01" : "DUMMY0000000000LEI02";
-        Party defaultParty = Party.builder()
-            .addPartyId(PartyIdentifier.builder()
-                .setIdentifier(FieldWithMetaString.builder()
-                    .setValue(lei)
-                    .setMeta(MetaFields.builder()
-                        .setScheme("http://www.fpml.org/coding-scheme/external/iso17442")
-                        .build())
-                    .build())
-                .setIdentifierType(PartyIdentifierTypeEnum.LEI)
-                .build())
-            .build();
-        return ReferenceWithMetaParty.builder().setValue(defaultParty).build();
+    /**
+     * Generate the reports for a batch of events in parallel on the shared {@link ParallelReportGenerator}.
+     * Results keep the input order; failures are captured per item.
+     */
+    List<ReportResult> generateReports(Collection<? extends ReportableEvent> reportableEvents) {
+        return runtime.getReportGenerator().generateReports(reportableEvents);
     }
-} 
+}
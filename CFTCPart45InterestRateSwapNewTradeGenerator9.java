@@ -17,7 +17,7 @@ import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.regnosys.drr.DrrRuntimeModuleExternalApi;
-import com.regnosys.drr.examples.util.ResourcesUtils;
+import com.regnosys.drr.examples.util.CdmDocumentLoader;
 import com.regnosys.rosetta.common.postprocess.WorkflowPostProcessor;
 import com.rosetta.model.lib.RosettaModelObject;
 import com.rosetta.model.lib.RosettaModelObjectBuilder;
@@ -67,17 +67,6 @@ public class CFTCPart45InterestRateSwapNewTradeGenerator {
         if (args.length > 0) {
             System.out.println("=== CFTC Part 45 Interest Rate Swap Report Generator ===");
             System.out.println("Using input file from command line: " + args[0]);
-            
-            // Print file content
-            try {
-                System.out.println("\n=== File Content ===");
-                String content = new String(java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(args[0])));
-                System.out.println(content);
-                System.out.println("=== End of File Content ===\n");
-            } catch (Exception e) {
-                System.out.println("Error reading file: " + e.getMessage());
-            }
-            
             generator.createReportableEventAndRunReport(args[0]);
         } else {
             // Run the CFTC Part 45 report generation with a default file.
@@ -293,108 +282,26 @@ public class CFTCPart45InterestRateSwapNewTradeGenerator {
     /**
      * Smart auto-detection method that can load TradeState from any CDM file type.
      * Supports: TradeState, WorkflowStep, ReportableEvent, BusinessEvent, Trade
+     * The file type is sniffed from its root keys, so the file is parsed and reference-resolved only once.
      */
     private TradeState loadTradeStateFromAnyFile(String filePath) {
         System.out.println("Attempting to detect file type and extract TradeState...");
-        System.out.println("\n=== Input File Content ===");
-        try {
-            String content = new String(java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(filePath)));
-            System.out.println(content);
-            System.out.println("=== End of Input File ===\n");
-        } catch (Exception e) {
-            System.out.println("Could not read file: " + e.getMessage());
-        }
-        
-        // Strategy 1: Try loading as TradeState directly
-        try {
-            TradeState tradeState = ResourcesUtils.getObjectAndResolveReferences(TradeState.class, filePath);
-            if (tradeState.getTrade() != null) {
-                System.out.println("✓ Successfully loaded as TradeState");
-                return tradeState;
-            } else {
-                System.out.println("⚠ Loaded as TradeState but getTrade() is null");
-            }
-        } catch (Exception e) {
-            System.out.println("→ Not a TradeState file: " + e.getMessage());
-        }
-
-        // Strategy 2: Try loading as WorkflowStep and extract from BusinessEvent
-        try {
-            WorkflowStep workflowStep = ResourcesUtils.getObjectAndResolveReferences(WorkflowStep.class, filePath);
-            if (workflowStep.getBusinessEvent() != null && 
-                workflowStep.getBusinessEvent().getAfter() != null && 
-                !workflowStep.getBusinessEvent().getAfter().isEmpty()) {
-                
-                TradeState tradeState = workflowStep.getBusinessEvent().getAfter().get(0);
-                if (tradeState.getTrade() != null) {
-                    System.out.println("✓ Successfully extracted TradeState from WorkflowStep.businessEvent.after[0]");
-                    return tradeState;
-                } else {
-                    System.out.println("⚠ Found TradeState in WorkflowStep but getTrade() is null");
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("→ Not a WorkflowStep file: " + e.getMessage());
-        }
 
-        // Strategy 3: Try loading as ReportableEvent and extract from a workflow step
         try {
-            ReportableEvent reportableEvent = ResourcesUtils.getObjectAndResolveReferences(ReportableEvent.class, filePath);
-            if (reportableEvent.getOriginatingWorkflowStep() != null) {
-                WorkflowStep workflowStep = reportableEvent.getOriginatingWorkflowStep();
-                
-                // Try from business event after states
-                if (workflowStep.getBusinessEvent() != null && 
-                    workflowStep.getBusinessEvent().getAfter() != null && 
-                    !workflowStep.getBusinessEvent().getAfter().isEmpty()) {
-                    
-                    TradeState tradeState = workflowStep.getBusinessEvent().getAfter().get(0);
-                    if (tradeState.getTrade() != null) {
-                        System.out.println("✓ Successfully extracted TradeState from ReportableEvent.originatingWorkflowStep.businessEvent.after[0]");
-                        return tradeState;
-                    }
-                }
-                
-                // Try from reportable trade
-                if (reportableEvent.getReportableTrade() != null && 
-                    reportableEvent.getReportableTrade().getTrade() != null) {
-                    System.out.println("✓ Successfully extracted TradeState from ReportableEvent.reportableTrade");
-                    return reportableEvent.getReportableTrade();
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("→ Not a ReportableEvent file: " + e.getMessage());
-        }
+            CdmDocumentLoader.LoadedDocument document = CdmDocumentLoader.load(filePath);
+            System.out.println("✓ Detected file type: " + document.getType());
 
-        // Strategy 4: Try loading as BusinessEvent directly
-        try {
-            BusinessEvent businessEvent = ResourcesUtils.getObjectAndResolveReferences(BusinessEvent.class, filePath);
-            if (businessEvent.getAfter() != null && !businessEvent.getAfter().isEmpty()) {
-                TradeState tradeState = businessEvent.getAfter().get(0);
-                if (tradeState.getTrade() != null) {
-                    System.out.println("✓ Successfully extracted TradeState from BusinessEvent.after[0]");
-                    return tradeState;
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("→ Not a BusinessEvent file: " + e.getMessage());
-        }
-
-        // Strategy 5: Try loading as Trade directly and wrap in TradeState
-        try {
-            Trade trade = ResourcesUtils.getObjectAndResolveReferences(Trade.class, filePath);
-            if (trade != null) {
-                TradeState tradeState = TradeState.builder()
-                    .setTrade(trade)
-                    .build();
-                System.out.println("✓ Successfully loaded Trade and wrapped in TradeState");
+            TradeState tradeState = CdmDocumentLoader.extractTradeState(document);
+            if (tradeState != null && tradeState.getTrade() != null) {
+                System.out.println("✓ Successfully extracted TradeState from " + document.getType());
                 return tradeState;
             }
+            System.out.println("⚠ Loaded as " + document.getType() + " but no TradeState with a Trade was found");
         } catch (Exception e) {
-            System.out.println("→ Not a Trade file: " + e.getMessage());
+            System.out.println("→ Could not load file: " + e.getMessage());
         }
 
-        // If all strategies fail, provide helpful guidance
+        // If detection or extraction fails, provide helpful guidance
         System.out.println("✗ FAILED: Could not extract a valid TradeState from any supported CDM type");
         System.out.println("Supported file types:");
         System.out.println("  - TradeState (direct)");
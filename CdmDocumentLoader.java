@@ -0,0 +1,199 @@
+package com.regnosys.drr.examples.util;
+
+import cdm.event.common.BusinessEvent;
+import cdm.event.common.Trade;
+import cdm.event.common.TradeState;
+import cdm.event.workflow.WorkflowStep;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.Resources;
+import com.regnosys.rosetta.common.hashing.ReferenceResolverProcessStep;
+import com.regnosys.rosetta.common.serialisation.RosettaObjectMapper;
+import com.rosetta.model.lib.RosettaModelObject;
+import com.rosetta.model.lib.RosettaModelObjectBuilder;
+import drr.regulation.common.ReportableEvent;
+import org.isda.cdm.processor.CdmReferenceConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Single-pass loader for CDM JSON documents of unknown type.
+ *
+ * The root field names are peeked with a streaming token read (no tree, no object binding), the document
+ * type is decided with the CdmDocumentType rules, and the document is then deserialised and
+ * reference-resolved exactly once into that type.
+ */
+public final class CdmDocumentLoader {
+
+    private static final ObjectMapper rosettaMapper = RosettaObjectMapper.getNewRosettaObjectMapper();
+
+    private CdmDocumentLoader() {
+    }
+
+    /**
+     * A deserialised, reference-resolved CDM document together with its detected type.
+     */
+    public static final class LoadedDocument {
+        private final CdmDocumentType type;
+        private final RosettaModelObject object;
+
+        LoadedDocument(CdmDocumentType type, RosettaModelObject object) {
+            this.type = type;
+            this.object = object;
+        }
+
+        public CdmDocumentType getType() {
+            return type;
+        }
+
+        public RosettaModelObject getObject() {
+            return object;
+        }
+    }
+
+    /**
+     * Load the document at the given path (local file system first, then classpath) into its detected CDM type.
+     */
+    public static LoadedDocument load(String path) throws IOException {
+        ByteBuffer json = readBuffer(path);
+        CdmDocumentType type = sniff(json);
+        if (type == CdmDocumentType.UNKNOWN) {
+            throw new IllegalArgumentException("Unrecognised CDM document structure: " + path
+                    + ". Use CDMStructureValidator to analyze your file structure.");
+        }
+        RosettaModelObject object = MappedJsonInput.readValue(json, type.getCdmClass());
+        return new LoadedDocument(type, resolveReferences(object));
+    }
+
+    /**
+     * Detect the type of an already parsed document from its root fields, then bind and resolve it.
+     *
+     * @param description used in error messages, e.g. the file or record the tree came from
+     */
+    public static LoadedDocument fromTree(JsonNode document, String description) throws IOException {
+        List<String> rootFields = new ArrayList<>();
+        document.fieldNames().forEachRemaining(rootFields::add);
+        CdmDocumentType type = CdmDocumentType.detect(rootFields);
+        if (type == CdmDocumentType.UNKNOWN) {
+            throw new IllegalArgumentException(description + " has an unrecognised CDM structure, root fields: " + rootFields);
+        }
+        RosettaModelObject object = rosettaMapper.treeToValue(document, type.getCdmClass());
+        return new LoadedDocument(type, resolveReferences(object));
+    }
+
+    /**
+     * Load the document at the given path and extract the TradeState it carries.
+     */
+    public static TradeState loadTradeState(String path) throws IOException {
+        LoadedDocument document = load(path);
+        TradeState tradeState = extractTradeState(document);
+        if (tradeState == null || tradeState.getTrade() == null) {
+            throw new IllegalStateException("Unable to extract TradeState from the " + document.getType()
+                    + " file: " + path + ". Use CDMStructureValidator to analyze your file structure.");
+        }
+        return tradeState;
+    }
+
+    /**
+     * Detect the CDM type of a JSON document by streaming over its root field names only.
+     * Nested objects and arrays are skipped without being bound.
+     */
+    public static CdmDocumentType sniff(ByteBuffer json) throws IOException {
+        try (JsonParser parser = MappedJsonInput.createParser(json)) {
+            return sniff(parser);
+        }
+    }
+
+    static CdmDocumentType sniff(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return CdmDocumentType.UNKNOWN;
+        }
+        List<String> rootFields = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            rootFields.add(parser.getCurrentName());
+            parser.nextToken();
+            parser.skipChildren();
+        }
+        return CdmDocumentType.detect(rootFields);
+    }
+
+    /**
+     * Extract the TradeState from a loaded document, following the same paths the original
+     * multi-attempt loader used for each type.
+     */
+    public static TradeState extractTradeState(LoadedDocument document) {
+        RosettaModelObject object = document.getObject();
+        switch (document.getType()) {
+            case TRADE_STATE:
+                return (TradeState) object;
+            case WORKFLOW_STEP:
+                return firstAfter(((WorkflowStep) object).getBusinessEvent());
+            case REPORTABLE_EVENT:
+                ReportableEvent reportableEvent = (ReportableEvent) object;
+                TradeState after = reportableEvent.getOriginatingWorkflowStep() != null
+                        ? firstAfter(reportableEvent.getOriginatingWorkflowStep().getBusinessEvent())
+                        : null;
+                if (after != null && after.getTrade() != null) {
+                    return after;
+                }
+                return reportableEvent.getReportableTrade();
+            case BUSINESS_EVENT:
+                return firstAfter((BusinessEvent) object);
+            case TRADE:
+                return TradeState.builder()
+                        .setTrade((Trade) object)
+                        .build();
+            default:
+                return null;
+        }
+    }
+
+    private static TradeState firstAfter(BusinessEvent businessEvent) {
+        if (businessEvent == null || businessEvent.getAfter() == null || businessEvent.getAfter().isEmpty()) {
+            return null;
+        }
+        return businessEvent.getAfter().get(0);
+    }
+
+    /**
+     * Resolve global / external references across the whole object graph.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends RosettaModelObject> T resolveReferences(T object) {
+        RosettaModelObjectBuilder builder = object.toBuilder();
+        new ReferenceResolverProcessStep(CdmReferenceConfig.get()).runProcessStep(builder.getType(), builder);
+        return (T) builder.build();
+    }
+
+    /**
+     * Load the document at the given path into the given type, resolving only the references found under the
+     * given attribute scopes - a targeted alternative to ResourcesUtils.getObjectAndResolveReferences.
+     */
+    public static <T extends RosettaModelObject> T loadWithTargetedResolution(String path, Class<T> type, Set<String> scopes) throws IOException {
+        JsonNode document;
+        try (JsonParser parser = MappedJsonInput.createParser(readBuffer(path))) {
+            document = rosettaMapper.readTree(parser);
+        }
+        return TargetedReferenceResolver.readResolved(document, type, scopes);
+    }
+
+    /**
+     * Local files are memory-mapped; classpath resources are read into a heap buffer.
+     */
+    static ByteBuffer readBuffer(String path) throws IOException {
+        Path file = Paths.get(path);
+        if (Files.isRegularFile(file)) {
+            return MappedJsonInput.map(file);
+        }
+        return ByteBuffer.wrap(Resources.toByteArray(Resources.getResource(path)));
+    }
+}
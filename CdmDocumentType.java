@@ -0,0 +1,65 @@
+package com.regnosys.drr.examples.util;
+
+import cdm.event.common.BusinessEvent;
+import cdm.event.common.Trade;
+import cdm.event.common.TradeState;
+import cdm.event.workflow.WorkflowStep;
+import com.rosetta.model.lib.RosettaModelObject;
+import drr.regulation.common.ReportableEvent;
+
+import java.util.Collection;
+
+/**
+ * CDM root document types that can be recognised from the field names at the root of a JSON document.
+ *
+ * The detection rules mirror CDMStructureValidator.detectFileType so the loaders and the validator
+ * always agree on what a file is.
+ */
+public enum CdmDocumentType {
+
+    REPORTABLE_EVENT(ReportableEvent.class),
+    WORKFLOW_STEP(WorkflowStep.class),
+    TRADE_STATE(TradeState.class),
+    BUSINESS_EVENT(BusinessEvent.class),
+    TRADE(Trade.class),
+    UNKNOWN(null);
+
+    private final Class<? extends RosettaModelObject> cdmClass;
+
+    CdmDocumentType(Class<? extends RosettaModelObject> cdmClass) {
+        this.cdmClass = cdmClass;
+    }
+
+    public Class<? extends RosettaModelObject> getCdmClass() {
+        return cdmClass;
+    }
+
+    /**
+     * Detect the document type from its root field names.
+     *
+     * Note: CDMStructureValidator reports 'trade' without 'state' as "Trade", but such a document is a
+     * TradeState without a state block (a bare Trade has no 'trade' field), so both map to TRADE_STATE here.
+     * A root 'after' is checked before 'instruction' as a BusinessEvent carries both.
+     */
+    public static CdmDocumentType detect(Collection<String> rootFields) {
+        if (rootFields.contains("originatingWorkflowStep")) {
+            return REPORTABLE_EVENT;
+        }
+        if (rootFields.contains("businessEvent")) {
+            return WORKFLOW_STEP;
+        }
+        if (rootFields.contains("trade")) {
+            return TRADE_STATE;
+        }
+        if (rootFields.contains("after")) {
+            return BUSINESS_EVENT;
+        }
+        if (rootFields.contains("instruction") || rootFields.contains("proposedEvent")) {
+            return WORKFLOW_STEP;
+        }
+        if (rootFields.contains("tradableProduct") || rootFields.contains("tradeIdentifier")) {
+            return TRADE;
+        }
+        return UNKNOWN;
+    }
+}
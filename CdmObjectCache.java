@@ -0,0 +1,177 @@
+package com.regnosys.drr.examples.util;
+
+import com.rosetta.model.lib.RosettaModelObject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of parsed (and optionally reference-resolved) CDM objects.
+ *
+ * Entries are keyed by the SHA-256 of the source bytes plus the target class, so loading the same bytes
+ * again is a lookup instead of a re-parse, whatever path they were read from. Built CDM objects are
+ * immutable and therefore safe to share between callers. Eviction is least-recently-used, bounded by the
+ * total size of the source documents held.
+ */
+public final class CdmObjectCache {
+
+    /** Default budget: 256MB of source JSON. */
+    public static final long DEFAULT_MAX_WEIGHT_BYTES = 256L * 1024 * 1024;
+
+    private static final CdmObjectCache SHARED = new CdmObjectCache(DEFAULT_MAX_WEIGHT_BYTES);
+
+    private final long maxWeightBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentWeightBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CdmObjectCache(long maxWeightBytes) {
+        if (maxWeightBytes <= 0) {
+            throw new IllegalArgumentException("maxWeightBytes must be positive: " + maxWeightBytes);
+        }
+        this.maxWeightBytes = maxWeightBytes;
+    }
+
+    /**
+     * Process-wide cache shared by the loaders and the validator.
+     */
+    public static CdmObjectCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Load the document at the given path (local file system first, then classpath) through the cache.
+     */
+    public <T extends RosettaModelObject> T load(String path, Class<T> type, boolean resolveReferences) throws IOException {
+        return get(CdmDocumentLoader.readBuffer(path), type, resolveReferences);
+    }
+
+    /**
+     * Return the cached object for these bytes and type, parsing (and resolving) it on a miss.
+     */
+    public <T extends RosettaModelObject> T get(ByteBuffer content, Class<T> type, boolean resolveReferences) throws IOException {
+        Key key = new Key(hash(content), type, resolveReferences);
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return type.cast(entry.object);
+            }
+        }
+        misses.incrementAndGet();
+
+        // Parse outside the lock; a concurrent miss on the same key just parses twice
+        T object = MappedJsonInput.readValue(content, type);
+        if (resolveReferences) {
+            object = CdmDocumentLoader.resolveReferences(object);
+        }
+        put(key, new Entry(object, content.remaining()));
+        return object;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        if (entry.weightBytes > maxWeightBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            currentWeightBytes -= previous.weightBytes;
+        }
+        currentWeightBytes += entry.weightBytes;
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (currentWeightBytes > maxWeightBytes && eldest.hasNext()) {
+            currentWeightBytes -= eldest.next().getValue().weightBytes;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentWeightBytes = 0;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeightBytes() {
+        return currentWeightBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "CdmObjectCache{entries=" + size() + ", weightBytes=" + getWeightBytes() + "/" + maxWeightBytes
+                + ", hits=" + hits.get() + ", misses=" + misses.get() + ", evictions=" + evictions.get() + "}";
+    }
+
+    private static String hash(ByteBuffer content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content.duplicate());
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class Key {
+        private final String contentHash;
+        private final Class<?> type;
+        private final boolean resolved;
+
+        Key(String contentHash, Class<?> type, boolean resolved) {
+            this.contentHash = contentHash;
+            this.type = type;
+            this.resolved = resolved;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return resolved == other.resolved && contentHash.equals(other.contentHash) && type.equals(other.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(contentHash, type, resolved);
+        }
+    }
+
+    private static final class Entry {
+        private final RosettaModelObject object;
+        private final long weightBytes;
+
+        Entry(RosettaModelObject object, long weightBytes) {
+            this.object = object;
+            this.weightBytes = weightBytes;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.regnosys.drr.examples.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.regnosys.rosetta.common.serialisation.RosettaObjectMapper;
+import com.rosetta.model.lib.RosettaModelObject;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Binary (Smile) snapshots of CDM objects for fixtures and intermediate pipeline objects.
+ *
+ * Snapshots are written with the Rosetta mapper configuration on a Smile backend, so they bind exactly like
+ * the JSON form. Objects are stored as they are given - write them after post-processing and reference
+ * resolution, and they reload without the resolve step.
+ *
+ * A snapshot holds two root values: the fully qualified CDM class name, then the object itself. This makes
+ * snapshots self-describing, so a corpus of mixed TradeState / WorkflowStep / ReportableEvent files can be
+ * reloaded without knowing each file's type up front.
+ */
+public final class CdmSnapshotStore {
+
+    public static final String SNAPSHOT_EXTENSION = ".smile";
+
+    private static final ObjectMapper smileMapper = RosettaObjectMapper.getNewRosettaObjectMapper()
+            .copyWith(new SmileFactory());
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CdmSnapshotStore() {
+    }
+
+    /**
+     * Write the object as a snapshot. The file is written to a temporary sibling and moved into place.
+     */
+    public static void write(Path snapshot, RosettaModelObject object) throws IOException {
+        Path parent = snapshot.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, snapshot.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE)) {
+                write(out, object);
+            }
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public static void write(OutputStream out, RosettaModelObject object) throws IOException {
+        try (JsonGenerator generator = smileMapper.getFactory().createGenerator(out)) {
+            generator.writeString(object.getType().getName());
+            smileMapper.writeValue(generator, object);
+        }
+    }
+
+    public static byte[] toBytes(RosettaModelObject object) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out, object);
+        return out.toByteArray();
+    }
+
+    /**
+     * Read a snapshot into the class it was written from.
+     */
+    public static RosettaModelObject read(Path snapshot) throws IOException {
+        try (InputStream in = MappedJsonInput.openStream(snapshot)) {
+            return read(in, RosettaModelObject.class);
+        }
+    }
+
+    /**
+     * Read a snapshot, checking that it holds the expected type.
+     */
+    public static <T extends RosettaModelObject> T read(Path snapshot, Class<T> type) throws IOException {
+        try (InputStream in = MappedJsonInput.openStream(snapshot)) {
+            return read(in, type);
+        }
+    }
+
+    public static <T extends RosettaModelObject> T fromBytes(byte[] snapshot, Class<T> type) throws IOException {
+        return read(new ByteArrayInputStream(snapshot), type);
+    }
+
+    public static <T extends RosettaModelObject> T read(InputStream in, Class<T> type) throws IOException {
+        try (JsonParser parser = smileMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.VALUE_STRING) {
+                throw new IOException("Not a CDM snapshot: missing type header");
+            }
+            Class<?> storedType;
+            try {
+                // Load without initialising: the type header comes from the file and is checked before use
+                storedType = Class.forName(parser.getText(), false, type.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unknown CDM type in snapshot: " + parser.getText(), e);
+            }
+            if (!type.isAssignableFrom(storedType)) {
+                throw new IllegalArgumentException("Snapshot holds " + storedType.getName() + ", expected " + type.getName());
+            }
+            parser.nextToken();
+            return type.cast(smileMapper.readValue(parser, storedType));
+        }
+    }
+
+    /**
+     * Convert a JSON document (or every .json file under a directory) into reference-resolved snapshots
+     * written next to the source files.
+     *
+     * @return the number of snapshots written
+     */
+    public static int snapshotJson(Path source) throws IOException {
+        List<Path> jsonFiles;
+        if (Files.isDirectory(source)) {
+            try (Stream<Path> files = Files.walk(source)) {
+                jsonFiles = files.filter(p -> p.getFileName().toString().endsWith(".json")).collect(Collectors.toList());
+            }
+        } else {
+            jsonFiles = List.of(source);
+        }
+
+        int written = 0;
+        for (Path json : jsonFiles) {
+            CdmDocumentLoader.LoadedDocument document = CdmDocumentLoader.load(json.toString());
+            write(snapshotPathFor(json), document.getObject());
+            written++;
+        }
+        return written;
+    }
+
+    public static Path snapshotPathFor(Path json) {
+        String name = json.getFileName().toString();
+        if (name.endsWith(".json")) {
+            name = name.substring(0, name.length() - ".json".length());
+        }
+        return json.resolveSibling(name + SNAPSHOT_EXTENSION);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java CdmSnapshotStore <cdm-json-file | directory>");
+            System.exit(1);
+        }
+        long start = System.currentTimeMillis();
+        int written = snapshotJson(Paths.get(args[0]));
+        System.out.println("✓ Wrote " + written + " snapshot(s) in " + (System.currentTimeMillis() - start) + "ms");
+    }
+}
@@ -0,0 +1,173 @@
+package com.regnosys.drr.examples.util;
+
+import cdm.event.common.TradeState;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads CDM JSON / NDJSON straight out of gzip files and zip bundles, decompressing on the fly with the JDK
+ * inflater streams - nothing is unpacked to disk.
+ *
+ * The format is detected from the leading magic bytes, not the file extension. A gzip file is one record
+ * stream; every file entry of a zip bundle is processed as its own record stream. Plain files are read from a
+ * memory mapping. Each record stream may hold a single JSON document or newline-delimited documents.
+ */
+public final class CompressedCdmInput {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Format {
+        PLAIN, GZIP, ZIP
+    }
+
+    /**
+     * Receives one decompressed record stream. The stream must not be closed by the consumer.
+     */
+    @FunctionalInterface
+    public interface RecordStreamConsumer {
+        void accept(String name, InputStream in) throws IOException;
+    }
+
+    private CompressedCdmInput() {
+    }
+
+    public static Format detectFormat(Path path) throws IOException {
+        byte[] magic = new byte[4];
+        int read;
+        try (InputStream in = Files.newInputStream(path)) {
+            read = in.readNBytes(magic, 0, magic.length);
+        }
+        if (read >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+            return Format.GZIP;
+        }
+        if (read == 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4) {
+            return Format.ZIP;
+        }
+        return Format.PLAIN;
+    }
+
+    /**
+     * Stream every record of the file (one for plain and gzip files, one per entry for zip bundles).
+     *
+     * @return the number of record streams processed
+     */
+    public static int forEachRecordStream(Path path, RecordStreamConsumer consumer) throws IOException {
+        switch (detectFormat(path)) {
+            case GZIP:
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(path), BUFFER_SIZE)) {
+                    consumer.accept(path.getFileName().toString(), new BufferedInputStream(in, BUFFER_SIZE));
+                }
+                return 1;
+            case ZIP:
+                int entries = 0;
+                try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+                    ZipEntry entry;
+                    while ((entry = zip.getNextEntry()) != null) {
+                        if (!entry.isDirectory()) {
+                            consumer.accept(entry.getName(), new NonClosingInputStream(zip));
+                            entries++;
+                        }
+                        zip.closeEntry();
+                    }
+                }
+                return entries;
+            default:
+                try (InputStream in = MappedJsonInput.openStream(path)) {
+                    consumer.accept(path.getFileName().toString(), in);
+                }
+                return 1;
+        }
+    }
+
+    /**
+     * Hand the TradeState carried by every CDM document in the file to the consumer. Unusable documents are
+     * logged and skipped, see {@link NdjsonCdmReader}. A record stream that cannot be read or decompressed as a
+     * whole is reported as skipped at line 0 and the next zip entry is still processed. Exceptions thrown by the
+     * consumer are not caught: they abort the file.
+     *
+     * @return the number of documents handed to the consumer
+     */
+    public static long forEachTradeState(Path path, Consumer<? super TradeState> consumer) throws IOException {
+        return forEachTradeState(path, consumer, NdjsonCdmReader.LOG_AND_CONTINUE);
+    }
+
+    public static long forEachTradeState(Path path, Consumer<? super TradeState> consumer,
+                                         NdjsonCdmReader.SkippedRecordHandler skipped) throws IOException {
+        long[] documents = {0};
+        Consumer<TradeState> counting = tradeState -> {
+            try {
+                consumer.accept(tradeState);
+            } catch (RuntimeException e) {
+                throw new ConsumerFailure(e);
+            }
+            documents[0]++;
+        };
+        try {
+            forEachRecordStream(path, (name, in) -> {
+                try {
+                    NdjsonCdmReader.forEachTradeState(in, name, counting, skipped);
+                } catch (ConsumerFailure e) {
+                    throw e;
+                } catch (IOException | RuntimeException e) {
+                    skipped.skipped(path.getFileName() + "!" + name, 0, e);
+                }
+            });
+        } catch (ConsumerFailure e) {
+            throw e.getCause();
+        }
+        return documents[0];
+    }
+
+    /**
+     * Carries a consumer exception past the per-stream read failure handling.
+     */
+    private static final class ConsumerFailure extends RuntimeException {
+        ConsumerFailure(RuntimeException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized RuntimeException getCause() {
+            return (RuntimeException) super.getCause();
+        }
+    }
+
+    /**
+     * Read a file that is expected to carry exactly one CDM document, compressed or not.
+     */
+    public static TradeState readSingleTradeState(Path path) throws IOException {
+        List<TradeState> tradeStates = new ArrayList<>(1);
+        forEachTradeState(path, tradeStates::add, (source, line, cause) -> {
+            throw new IllegalArgumentException("Cannot read " + source + " line " + line + ": " + cause.getMessage(), cause);
+        });
+        if (tradeStates.size() != 1) {
+            throw new IllegalArgumentException("Expected exactly one CDM document in " + path + " but found " + tradeStates.size());
+        }
+        return tradeStates.get(0);
+    }
+
+    /**
+     * Lets the JSON parser close its source at the end of a zip entry without closing the whole bundle.
+     */
+    private static final class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+            // the enclosing ZipInputStream is closed by forEachRecordStream
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.regnosys.drr.examples;
+
+import cdm.base.staticdata.party.CounterpartyRoleEnum;
+import cdm.base.staticdata.party.metafields.ReferenceWithMetaParty;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.regnosys.drr.DrrRuntimeModuleExternalApi;
+import com.regnosys.drr.examples.util.NdjsonReportSink;
+import com.regnosys.rosetta.common.postprocess.WorkflowPostProcessor;
+import com.regnosys.rosetta.common.serialisation.RosettaObjectMapper;
+import drr.enrichment.common.trade.functions.Create_ReportableEvents;
+import drr.enrichment.common.trade.functions.Create_TransactionReportInstruction;
+import drr.regulation.cftc.rewrite.CFTCPart45TransactionReport;
+import drr.regulation.cftc.rewrite.reports.CFTCPart45ReportFunction;
+import drr.regulation.common.ReportableEvent;
+import drr.regulation.common.ReportingSide;
+import drr.regulation.common.functions.ExtractTradeCounterparty;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Process-wide DRR runtime: the Guice injector is built once and the functions every generator uses are
+ * resolved once, so generators and per-event report runs no longer pay for injector construction and
+ * function lookup.
+ *
+ * The DRR functions are stateless once injected and are shared by all callers.
+ *
+ * Reports are emitted to an {@link NdjsonReportSink} when -Ddrr.sink.dir is set, otherwise pretty-printed to
+ * stdout. The sink is flushed and closed by a shutdown hook, as is the shared {@link ParallelReportGenerator}.
+ */
+public final class DrrReportingRuntime {
+
+    private static final class Holder {
+        private static final DrrReportingRuntime INSTANCE = create();
+    }
+
+    private final Injector injector;
+    private final Create_ReportableEvents createReportableEvents;
+    private final Create_TransactionReportInstruction createTransactionReportInstruction;
+    private final CFTCPart45ReportFunction cftcPart45ReportFunction;
+    private final ExtractTradeCounterparty extractTradeCounterparty;
+    private final WorkflowPostProcessor postProcessor;
+    private final ReportingFunctions reportingFunctions;
+    private final ObjectWriter reportWriter;
+    private final NdjsonReportSink reportSink;
+    private final long startupMillis;
+    private volatile ParallelReportGenerator reportGenerator;
+
+    DrrReportingRuntime(Injector injector) {
+        long start = System.currentTimeMillis();
+        this.injector = injector;
+        this.createReportableEvents = injector.getInstance(Create_ReportableEvents.class);
+        this.createTransactionReportInstruction = injector.getInstance(Create_TransactionReportInstruction.class);
+        this.cftcPart45ReportFunction = injector.getInstance(CFTCPart45ReportFunction.class);
+        this.extractTradeCounterparty = injector.getInstance(ExtractTradeCounterparty.class);
+        this.postProcessor = injector.getInstance(WorkflowPostProcessor.class);
+        this.reportingFunctions = new ReportingFunctions(createTransactionReportInstruction, cftcPart45ReportFunction, extractTradeCounterparty);
+        this.reportWriter = RosettaObjectMapper.getNewRosettaObjectMapper().writerWithDefaultPrettyPrinter();
+        this.reportSink = openReportSink();
+        this.startupMillis = System.currentTimeMillis() - start;
+    }
+
+    private static NdjsonReportSink openReportSink() {
+        try {
+            NdjsonReportSink sink = NdjsonReportSink.fromSystemProperties();
+            if (sink != null) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        sink.close();
+                    } catch (IOException e) {
+                        System.err.println("Failed to close report sink: " + e.getMessage());
+                    }
+                }, "drr-report-sink-close"));
+            }
+            return sink;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open report sink in " + System.getProperty("drr.sink.dir"), e);
+        }
+    }
+
+    /**
+     * Build a new runtime with its own injector. Most callers want the shared {@link #get()} instance.
+     */
+    static DrrReportingRuntime create() {
+        return new DrrReportingRuntime(Guice.createInjector(new DrrRuntimeModuleExternalApi()));
+    }
+
+    /**
+     * The shared runtime. The injector is built on first use.
+     */
+    public static DrrReportingRuntime get() {
+        return Holder.INSTANCE;
+    }
+
+    public Injector getInjector() {
+        return injector;
+    }
+
+    /**
+     * Create (or look up) any other DRR / CDM component through the shared injector.
+     */
+    public <T> T getInstance(Class<T> type) {
+        return injector.getInstance(type);
+    }
+
+    public Create_ReportableEvents getCreateReportableEvents() {
+        return createReportableEvents;
+    }
+
+    public Create_TransactionReportInstruction getCreateTransactionReportInstruction() {
+        return createTransactionReportInstruction;
+    }
+
+    public CFTCPart45ReportFunction getCftcPart45ReportFunction() {
+        return cftcPart45ReportFunction;
+    }
+
+    public ExtractTradeCounterparty getExtractTradeCounterparty() {
+        return extractTradeCounterparty;
+    }
+
+    public WorkflowPostProcessor getPostProcessor() {
+        return postProcessor;
+    }
+
+    /**
+     * Report generation through the runtime's own functions; the convenience methods below delegate to it.
+     * Multi-threaded callers use {@link #getReportGenerator()} or a {@link ReportingFunctions} bundle per thread.
+     */
+    public ReportingFunctions getReportingFunctions() {
+        return reportingFunctions;
+    }
+
+    /**
+     * The process-wide parallel report generator, one worker per core. Created on first use and shut down
+     * with the JVM.
+     */
+    public ParallelReportGenerator getReportGenerator() {
+        ParallelReportGenerator generator = reportGenerator;
+        if (generator == null) {
+            synchronized (this) {
+                generator = reportGenerator;
+                if (generator == null) {
+                    generator = new ParallelReportGenerator(injector, Runtime.getRuntime().availableProcessors());
+                    Runtime.getRuntime().addShutdownHook(new Thread(generator::close, "drr-report-generator-close"));
+                    reportGenerator = generator;
+                }
+            }
+        }
+        return generator;
+    }
+
+    /**
+     * Time spent resolving the pre-wired functions, excluding injector construction.
+     */
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    /**
+     * Reporting side with PARTY_1 as the reporting party and PARTY_2 as the reporting counterparty.
+     */
+    public ReportingSide defaultReportingSide(ReportableEvent reportableEvent) {
+        return reportingFunctions.defaultReportingSide(reportableEvent);
+    }
+
+    public ReferenceWithMetaParty getCounterparty(ReportableEvent reportableEvent, CounterpartyRoleEnum party) {
+        return reportingFunctions.getCounterparty(reportableEvent, party);
+    }
+
+    public CFTCPart45TransactionReport generateCftcPart45Report(ReportableEvent reportableEvent, ReportingSide reportingSide) {
+        return reportingFunctions.generateCftcPart45Report(reportableEvent, reportingSide);
+    }
+
+    public CFTCPart45TransactionReport generateCftcPart45Report(ReportableEvent reportableEvent) {
+        return reportingFunctions.generateCftcPart45Report(reportableEvent);
+    }
+
+    /**
+     * Reports for both sides, see {@link ReportingFunctions#generateDualSidedReports(ReportableEvent)}.
+     */
+    public ReportingFunctions.DualSidedReports generateDualSidedReports(ReportableEvent reportableEvent) {
+        return reportingFunctions.generateDualSidedReports(reportableEvent);
+    }
+
+    /**
+     * Generate the CFTC Part 45 report for PARTY_1 reporting against PARTY_2 and emit it.
+     */
+    public CFTCPart45TransactionReport runReport(ReportableEvent reportableEvent) throws IOException {
+        CFTCPart45TransactionReport report = generateCftcPart45Report(reportableEvent);
+        emitReport(report);
+        return report;
+    }
+
+    /**
+     * Emit a report: one NDJSON line to the report sink if one is configured, pretty-printed to stdout otherwise.
+     */
+    public void emitReport(Object report) throws IOException {
+        if (reportSink != null) {
+            reportSink.write(report);
+        } else {
+            System.out.println("\n=== Generated CFTC Part 45 Report ===");
+            System.out.println(writeReport(report));
+            System.out.println("===================================");
+        }
+    }
+
+    /**
+     * Make every report emitted so far durable (sink) or at least written out (stdout).
+     */
+    public void flushReports() throws IOException {
+        if (reportSink != null) {
+            reportSink.flush();
+        } else {
+            System.out.flush();
+        }
+    }
+
+    /**
+     * The configured report sink, or null when reports go to stdout.
+     */
+    public NdjsonReportSink getReportSink() {
+        return reportSink;
+    }
+
+    public String writeReport(Object report) throws IOException {
+        return reportWriter.writeValueAsString(report);
+    }
+}
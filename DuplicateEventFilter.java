@@ -0,0 +1,118 @@
+package com.regnosys.drr.examples.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.regnosys.rosetta.common.serialisation.RosettaObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rejects resent copies of the same input event before any DRR function is evaluated for them.
+ *
+ * An event is keyed by an identity chosen by the caller - the upstream identifiers of the input, taken before
+ * any ids are generated for it - plus a canonical content hash of the input (SHA-256 of the compact JSON with
+ * properties and map keys sorted), so a resend with the same identity but different content is still let
+ * through.
+ *
+ * Keys are held in an exact set bounded to the most recent capacity events (oldest evicted first), so a
+ * new event is never dropped by mistake and memory stays bounded; a resend arriving after capacity newer
+ * events is treated as new.
+ *
+ * Window size: -Ddrr.dedup.capacity (default 100000).
+ */
+public final class DuplicateEventFilter {
+
+    private static final DuplicateEventFilter SHARED = new DuplicateEventFilter(Integer.getInteger("drr.dedup.capacity", 100_000));
+
+    private static final ObjectWriter canonicalWriter = RosettaObjectMapper.getNewRosettaObjectMapper().copy()
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            .writer();
+
+    private final int capacity;
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<String> seenOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger seenSize = new AtomicInteger();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    public DuplicateEventFilter(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Process-wide filter.
+     */
+    public static DuplicateEventFilter shared() {
+        return SHARED;
+    }
+
+    /**
+     * Record the event and tell whether it is the first occurrence of this identity and content.
+     *
+     * @return true for a new event, false for a duplicate
+     */
+    public boolean firstOccurrence(String identity, Object input) {
+        String key = Base64.getEncoder().encodeToString(sha256(identity + "\n" + contentHash(input)));
+        if (!seen.add(key)) {
+            duplicates.incrementAndGet();
+            return false;
+        }
+        seenOrder.add(key);
+        if (seenSize.incrementAndGet() > capacity) {
+            String oldest = seenOrder.poll();
+            if (oldest != null && seen.remove(oldest)) {
+                seenSize.decrementAndGet();
+            }
+        }
+        return true;
+    }
+
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    public int size() {
+        return seenSize.get();
+    }
+
+    /**
+     * SHA-256 (Base64) of the canonical JSON form of the input.
+     */
+    public static String contentHash(Object input) {
+        try {
+            return Base64.getEncoder().encodeToString(sha256(canonicalWriter.writeValueAsBytes(input)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialise input for content hash", e);
+        }
+    }
+
+    private static byte[] sha256(String value) {
+        return sha256(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] sha256(byte[] value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DuplicateEventFilter[events=" + size() + ", capacity=" + capacity + ", duplicates=" + duplicates.get() + "]";
+    }
+}
@@ -0,0 +1,728 @@
+package com.regnosys.drr.examples.util;
+
+import cdm.base.datetime.AdjustableDate;
+import cdm.base.datetime.AdjustableOrRelativeDate;
+import cdm.base.datetime.Frequency;
+import cdm.base.datetime.Period;
+import cdm.base.datetime.PeriodEnum;
+import cdm.base.datetime.PeriodExtendedEnum;
+import cdm.base.datetime.daycount.DayCountFractionEnum;
+import cdm.base.datetime.daycount.metafields.FieldWithMetaDayCountFractionEnum;
+import cdm.base.math.NonNegativeQuantitySchedule;
+import cdm.base.math.UnitType;
+import cdm.base.math.metafields.FieldWithMetaNonNegativeQuantitySchedule;
+import cdm.base.math.metafields.ReferenceWithMetaNonNegativeQuantitySchedule;
+import cdm.base.staticdata.asset.rates.FloatingRateIndexEnum;
+import cdm.base.staticdata.identifier.AssignedIdentifier;
+import cdm.base.staticdata.identifier.TradeIdentifierTypeEnum;
+import cdm.base.staticdata.party.Counterparty;
+import cdm.base.staticdata.party.CounterpartyRoleEnum;
+import cdm.base.staticdata.party.Party;
+import cdm.base.staticdata.party.PartyIdentifier;
+import cdm.base.staticdata.party.PartyIdentifierTypeEnum;
+import cdm.base.staticdata.party.PayerReceiver;
+import cdm.event.common.Trade;
+import cdm.event.common.TradeIdentifier;
+import cdm.event.common.TradeState;
+import cdm.observable.asset.FloatingRateOption;
+import cdm.observable.asset.Price;
+import cdm.observable.asset.PriceTypeEnum;
+import cdm.observable.asset.SpreadSchedule;
+import cdm.product.asset.FixedRateSpecification;
+import cdm.product.asset.FloatingRateSpecification;
+import cdm.product.asset.InterestRatePayout;
+import cdm.product.asset.RateSpecification;
+import cdm.product.common.schedule.PaymentDates;
+import cdm.product.common.schedule.RateSchedule;
+import cdm.product.common.settlement.PriceQuantity;
+import cdm.product.common.settlement.ResolvablePriceQuantity;
+import cdm.product.template.ContractualProduct;
+import cdm.product.template.EconomicTerms;
+import cdm.product.template.Payout;
+import cdm.product.template.Product;
+import cdm.product.template.TradableProduct;
+import cdm.product.template.TradeLot;
+import com.rosetta.model.lib.records.Date;
+import com.rosetta.model.metafields.FieldWithMetaDate;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.regnosys.rosetta.common.serialisation.RosettaObjectMapper;
+import com.rosetta.model.metafields.MetaFields;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * In-process FpML 5.10 confirmation ingest: streams the XML with StAX and emits CDM TradeState objects,
+ * replacing the separate FpML-to-CDM JSON conversion step for interest rate swaps.
+ *
+ * Supported subset: swap trades (IRS fixed/float, float/float and vanilla swaps) - trade identifiers, trade date,
+ * parties (LEI / name), and per swapStream the payer/receiver, effective/termination dates, notional and currency,
+ * fixed rate or floating rate index/tenor/spread, day count fraction and payment frequency. Other products are
+ * skipped with a warning.
+ *
+ * A value that cannot be converted (unknown floating rate index or day count name, malformed number or date)
+ * drops only that field, with a warning naming the trade and the field; a trade that cannot be mapped at all
+ * is skipped with a warning and the rest of the document is still emitted.
+ *
+ * Counterparties are the payer and receiver of the first swapStream (payer PARTY_1, receiver PARTY_2); other
+ * parties of the document (brokers, agents) are kept in the party list without a counterparty role. Parties
+ * are only assigned by document order when the streams carry no party references.
+ *
+ * Not mapped, so a TradeState from this reader is thinner than the FpML-to-CDM JSON conversion:
+ * - tradeLot prices and the floating rate observable (the rate only appears on the payout),
+ * - calculationPeriodDates, resetDates and business day adjustments (only the payment frequency is mapped),
+ * - the execution timestamp and execution details (partyTradeInformation),
+ * - the TradeState state / position status, and per-party trade identifiers other than the first value.
+ * Run {@link #main} with an FpML file and the converted CDM JSON of the same trade to list the field paths
+ * the converted file has and this reader does not.
+ *
+ * FpML lists parties after the trades of a document, so trades are collected as lightweight field holders and
+ * turned into TradeStates when the document ends; the XML itself is never held in memory.
+ */
+public final class FpmlTradeStateReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(FpmlTradeStateReader.class);
+    private static final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+    private static final String LEI_SCHEME = "iso17442";
+    private static final String UTI_SCHEME = "unique-transaction-identifier";
+
+    private FpmlTradeStateReader() {
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    public static long forEachTradeState(Path fpmlFile, Consumer<? super TradeState> consumer) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(fpmlFile), 64 * 1024)) {
+            return forEachTradeState(in, consumer);
+        }
+    }
+
+    /**
+     * Stream an FpML 5.10 document and hand every supported trade to the consumer as a TradeState.
+     *
+     * @return the number of TradeStates emitted
+     */
+    public static long forEachTradeState(InputStream in, Consumer<? super TradeState> consumer) throws IOException {
+        try {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(in);
+            try {
+                return new DocumentParser(reader).parse(consumer);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid FpML document: " + e.getMessage(), e);
+        }
+    }
+
+    public static List<TradeState> readTradeStates(Path fpmlFile) throws IOException {
+        List<TradeState> tradeStates = new ArrayList<>();
+        forEachTradeState(fpmlFile, tradeStates::add);
+        return tradeStates;
+    }
+
+    /**
+     * Mapping check against the FpML-to-CDM conversion: lists the field paths (array indexes and metadata
+     * ignored) the converted CDM JSON has and the first TradeState read from the FpML file does not, and the
+     * other way round.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java FpmlTradeStateReader <fpml-file> <converted-cdm-trade-state-json>");
+            System.exit(1);
+        }
+        List<TradeState> read = readTradeStates(Paths.get(args[0]));
+        if (read.isEmpty()) {
+            System.err.println("No supported trade in " + args[0]);
+            System.exit(1);
+        }
+        ObjectMapper mapper = RosettaObjectMapper.getNewRosettaObjectMapper();
+        Set<String> fromFpml = fieldPaths(mapper.valueToTree(read.get(0)));
+        Set<String> converted = fieldPaths(mapper.valueToTree(CdmDocumentLoader.loadTradeState(args[1])));
+
+        Set<String> missing = new TreeSet<>(converted);
+        missing.removeAll(fromFpml);
+        Set<String> extra = new TreeSet<>(fromFpml);
+        extra.removeAll(converted);
+        System.out.println(missing.size() + " field path(s) in the converted CDM but not read from FpML:");
+        missing.forEach(field -> System.out.println("  - " + field));
+        System.out.println(extra.size() + " field path(s) read from FpML but not in the converted CDM:");
+        extra.forEach(field -> System.out.println("  + " + field));
+    }
+
+    private static Set<String> fieldPaths(JsonNode node) {
+        Set<String> paths = new TreeSet<>();
+        collectFieldPaths(node, "", paths);
+        return paths;
+    }
+
+    private static void collectFieldPaths(JsonNode node, String path, Set<String> paths) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (!"meta".equals(field.getKey())) {
+                    collectFieldPaths(field.getValue(), path.isEmpty() ? field.getKey() : path + "." + field.getKey(), paths);
+                }
+            }
+        } else if (node.isArray()) {
+            node.forEach(element -> collectFieldPaths(element, path + "[]", paths));
+        } else if (!node.isNull()) {
+            paths.add(path);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Streaming parse into lightweight holders
+    // ---------------------------------------------------------------------------------------------------------------
+
+    private static final class FpmlParty {
+        String lei;
+        String otherId;
+        String name;
+    }
+
+    private static final class FpmlTradeId {
+        String partyHref;
+        String scheme;
+        String value;
+    }
+
+    private static final class FpmlStream {
+        String payerHref;
+        String receiverHref;
+        String effectiveDate;
+        String terminationDate;
+        String notional;
+        String currency;
+        String fixedRate;
+        String floatingRateIndex;
+        String indexTenorMultiplier;
+        String indexTenorPeriod;
+        String spread;
+        String dayCountFraction;
+        String paymentFrequencyMultiplier;
+        String paymentFrequencyPeriod;
+    }
+
+    private static final class FpmlTrade {
+        final List<FpmlTradeId> tradeIds = new ArrayList<>();
+        final List<FpmlStream> streams = new ArrayList<>();
+        String tradeDate;
+        boolean swap;
+    }
+
+    private static final class DocumentParser {
+        private final XMLStreamReader reader;
+        private final Deque<String> path = new ArrayDeque<>();
+        private final StringBuilder text = new StringBuilder();
+
+        private final List<FpmlTrade> trades = new ArrayList<>();
+        private final Map<String, FpmlParty> parties = new LinkedHashMap<>();
+
+        private FpmlTrade trade;
+        private FpmlTradeId tradeId;
+        private FpmlStream stream;
+        private FpmlParty party;
+
+        DocumentParser(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        long parse(Consumer<? super TradeState> consumer) throws XMLStreamException {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        startElement(reader.getLocalName());
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        text.append(reader.getText());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        endElement(reader.getLocalName(), text.toString().trim());
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            long emitted = 0;
+            for (FpmlTrade fpmlTrade : trades) {
+                if (!fpmlTrade.swap || fpmlTrade.streams.isEmpty()) {
+                    logger.warn("Skipping FpML trade {} without a supported swap product", label(fpmlTrade));
+                    continue;
+                }
+                TradeState tradeState;
+                try {
+                    tradeState = toTradeState(fpmlTrade, assignRoles(fpmlTrade));
+                } catch (RuntimeException e) {
+                    logger.warn("Skipping FpML trade {} that cannot be mapped to CDM: {}", label(fpmlTrade), e.getMessage());
+                    continue;
+                }
+                consumer.accept(tradeState);
+                emitted++;
+            }
+            return emitted;
+        }
+
+        private static String label(FpmlTrade fpmlTrade) {
+            for (FpmlTradeId id : fpmlTrade.tradeIds) {
+                if (id.value != null) {
+                    return id.value;
+                }
+            }
+            return "(no trade id)";
+        }
+
+        private void startElement(String name) {
+            path.push(name);
+            text.setLength(0);
+            switch (name) {
+                case "trade":
+                    trade = new FpmlTrade();
+                    break;
+                case "partyTradeIdentifier":
+                    if (trade != null) {
+                        tradeId = new FpmlTradeId();
+                    }
+                    break;
+                case "partyReference":
+                    if (tradeId != null) {
+                        tradeId.partyHref = attribute("href");
+                    }
+                    break;
+                case "tradeId":
+                    if (tradeId != null) {
+                        tradeId.scheme = attribute("tradeIdScheme");
+                    }
+                    break;
+                case "swap":
+                    if (trade != null) {
+                        trade.swap = true;
+                    }
+                    break;
+                case "swapStream":
+                    if (trade != null) {
+                        stream = new FpmlStream();
+                    }
+                    break;
+                case "payerPartyReference":
+                    if (stream != null && stream.payerHref == null) {
+                        stream.payerHref = attribute("href");
+                    }
+                    break;
+                case "receiverPartyReference":
+                    if (stream != null && stream.receiverHref == null) {
+                        stream.receiverHref = attribute("href");
+                    }
+                    break;
+                case "party":
+                    if (trade == null) {
+                        party = new FpmlParty();
+                        parties.put(attribute("id"), party);
+                    }
+                    break;
+                case "partyId":
+                    if (party != null) {
+                        String scheme = attribute("partyIdScheme");
+                        path.pop();
+                        path.push(scheme != null && scheme.contains(LEI_SCHEME) ? "partyId#lei" : "partyId");
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void endElement(String name, String value) {
+            String parent = parentElement();
+            switch (name) {
+                case "trade":
+                    trades.add(trade);
+                    trade = null;
+                    break;
+                case "partyTradeIdentifier":
+                    if (trade != null && tradeId != null) {
+                        trade.tradeIds.add(tradeId);
+                    }
+                    tradeId = null;
+                    break;
+                case "tradeId":
+                    if (tradeId != null && tradeId.value == null) {
+                        tradeId.value = value;
+                    }
+                    break;
+                case "tradeDate":
+                    if (trade != null && "tradeHeader".equals(parent)) {
+                        trade.tradeDate = value;
+                    }
+                    break;
+                case "swapStream":
+                    if (trade != null && stream != null) {
+                        trade.streams.add(stream);
+                    }
+                    stream = null;
+                    break;
+                case "unadjustedDate":
+                    if (stream != null && "effectiveDate".equals(parent)) {
+                        stream.effectiveDate = value;
+                    } else if (stream != null && "terminationDate".equals(parent)) {
+                        stream.terminationDate = value;
+                    }
+                    break;
+                case "initialValue":
+                    if (stream != null && "notionalStepSchedule".equals(parent)) {
+                        stream.notional = value;
+                    } else if (stream != null && "fixedRateSchedule".equals(parent)) {
+                        stream.fixedRate = value;
+                    } else if (stream != null && "spreadSchedule".equals(parent)) {
+                        stream.spread = value;
+                    }
+                    break;
+                case "currency":
+                    if (stream != null && "notionalStepSchedule".equals(parent)) {
+                        stream.currency = value;
+                    }
+                    break;
+                case "floatingRateIndex":
+                    if (stream != null) {
+                        stream.floatingRateIndex = value;
+                    }
+                    break;
+                case "periodMultiplier":
+                    if (stream != null && "indexTenor".equals(parent)) {
+                        stream.indexTenorMultiplier = value;
+                    } else if (stream != null && "paymentFrequency".equals(parent)) {
+                        stream.paymentFrequencyMultiplier = value;
+                    }
+                    break;
+                case "period":
+                    if (stream != null && "indexTenor".equals(parent)) {
+                        stream.indexTenorPeriod = value;
+                    } else if (stream != null && "paymentFrequency".equals(parent)) {
+                        stream.paymentFrequencyPeriod = value;
+                    }
+                    break;
+                case "dayCountFraction":
+                    if (stream != null) {
+                        stream.dayCountFraction = value;
+                    }
+                    break;
+                case "partyId":
+                    if (party != null) {
+                        if ("partyId#lei".equals(path.peek())) {
+                            party.lei = value;
+                        } else if (party.otherId == null) {
+                            party.otherId = value;
+                        }
+                    }
+                    break;
+                case "partyName":
+                    if (party != null) {
+                        party.name = value;
+                    }
+                    break;
+                case "party":
+                    party = null;
+                    break;
+                default:
+                    break;
+            }
+            path.pop();
+            text.setLength(0);
+        }
+
+        private String parentElement() {
+            if (path.size() < 2) {
+                return null;
+            }
+            String current = path.pop();
+            String parent = path.peek();
+            path.push(current);
+            return parent;
+        }
+
+        private String attribute(String localName) {
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                if (localName.equals(reader.getAttributeLocalName(i))) {
+                    return reader.getAttributeValue(i);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Counterparty roles of a trade: payer of the first stream is PARTY_1, its receiver PARTY_2. Falls back
+         * to the first two parties in document order when the streams carry no party references.
+         */
+        private Map<String, CounterpartyRoleEnum> assignRoles(FpmlTrade fpmlTrade) {
+            Map<String, CounterpartyRoleEnum> roles = new HashMap<>();
+            FpmlStream first = fpmlTrade.streams.get(0);
+            if (first.payerHref != null && first.receiverHref != null && !first.payerHref.equals(first.receiverHref)
+                    && parties.containsKey(first.payerHref) && parties.containsKey(first.receiverHref)) {
+                roles.put(first.payerHref, CounterpartyRoleEnum.PARTY_1);
+                roles.put(first.receiverHref, CounterpartyRoleEnum.PARTY_2);
+                return roles;
+            }
+            int index = 0;
+            for (String id : parties.keySet()) {
+                if (index == 0) {
+                    roles.put(id, CounterpartyRoleEnum.PARTY_1);
+                } else if (index == 1) {
+                    roles.put(id, CounterpartyRoleEnum.PARTY_2);
+                }
+                index++;
+            }
+            if (parties.size() > 2) {
+                logger.warn("FpML trade {}: no payer/receiver references, counterparties taken from the first two of {} parties",
+                        label(fpmlTrade), parties.size());
+            }
+            return roles;
+        }
+
+        /**
+         * Convert one FpML value, dropping only that field (with a warning) when it cannot be converted.
+         */
+        private <T> T convert(FpmlTrade fpmlTrade, String field, String value, Function<String, T> converter) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                T converted = converter.apply(value);
+                if (converted == null) {
+                    throw new IllegalArgumentException("unknown value");
+                }
+                return converted;
+            } catch (RuntimeException e) {
+                logger.warn("FpML trade {}: dropped {} = '{}' ({})", label(fpmlTrade), field, value, e.getMessage());
+                return null;
+            }
+        }
+
+        // -----------------------------------------------------------------------------------------------------------
+        // Mapping to CDM
+        // -----------------------------------------------------------------------------------------------------------
+
+        private TradeState toTradeState(FpmlTrade fpmlTrade, Map<String, CounterpartyRoleEnum> roles) {
+            Map<String, Party> cdmParties = new LinkedHashMap<>();
+            parties.forEach((id, fpmlParty) -> cdmParties.put(id, toParty(id, fpmlParty)));
+
+            Trade.TradeBuilder trade = Trade.builder()
+                    .setParty(new ArrayList<>(cdmParties.values()));
+
+            Date tradeDate = convert(fpmlTrade, "tradeDate", fpmlTrade.tradeDate, this::toDate);
+            if (tradeDate != null) {
+                trade.setTradeDate(FieldWithMetaDate.builder().setValue(tradeDate));
+            }
+
+            for (FpmlTradeId id : fpmlTrade.tradeIds) {
+                if (id.value == null) {
+                    continue;
+                }
+                TradeIdentifier.TradeIdentifierBuilder identifier = TradeIdentifier.builder()
+                        .addAssignedIdentifier(AssignedIdentifier.builder().setIdentifierValue(id.value));
+                if (id.scheme != null && id.scheme.contains(UTI_SCHEME)) {
+                    identifier.setIdentifierType(TradeIdentifierTypeEnum.UNIQUE_TRANSACTION_IDENTIFIER);
+                }
+                Party issuer = cdmParties.get(id.partyHref);
+                if (issuer != null && !issuer.getPartyId().isEmpty()) {
+                    identifier.setIssuerValue(issuer.getPartyId().get(0).getIdentifierValue());
+                }
+                trade.addTradeIdentifier(identifier);
+            }
+
+            List<Counterparty> counterparties = new ArrayList<>();
+            roles.forEach((id, role) -> counterparties.add(Counterparty.builder()
+                    .setRole(role)
+                    .setPartyReferenceValue(cdmParties.get(id))
+                    .build()));
+
+            Payout.PayoutBuilder payout = Payout.builder();
+            TradeLot.TradeLotBuilder tradeLot = TradeLot.builder();
+            FpmlStream first = fpmlTrade.streams.get(0);
+            for (int i = 0; i < fpmlTrade.streams.size(); i++) {
+                FpmlStream fpmlStream = fpmlTrade.streams.get(i);
+                String streamField = "swapStream[" + i + "].";
+                NonNegativeQuantitySchedule quantity = toQuantity(fpmlTrade, streamField, fpmlStream);
+                payout.addInterestRatePayout(toInterestRatePayout(fpmlTrade, streamField, fpmlStream, quantity, roles));
+                if (quantity != null) {
+                    tradeLot.addPriceQuantity(PriceQuantity.builder()
+                            .addQuantity(FieldWithMetaNonNegativeQuantitySchedule.builder()
+                                    .setValue(quantity)
+                                    .setMeta(MetaFields.builder().setExternalKey("quantity-" + (i + 1)))));
+                }
+            }
+
+            EconomicTerms.EconomicTermsBuilder economicTerms = EconomicTerms.builder()
+                    .setPayout(payout);
+            Date effectiveDate = convert(fpmlTrade, "effectiveDate", first.effectiveDate, this::toDate);
+            if (effectiveDate != null) {
+                economicTerms.setEffectiveDate(toAdjustableOrRelativeDate(effectiveDate));
+            }
+            Date terminationDate = convert(fpmlTrade, "terminationDate", first.terminationDate, this::toDate);
+            if (terminationDate != null) {
+                economicTerms.setTerminationDate(toAdjustableOrRelativeDate(terminationDate));
+            }
+
+            trade.setTradableProduct(TradableProduct.builder()
+                    .setProduct(Product.builder()
+                            .setContractualProduct(ContractualProduct.builder()
+                                    .setEconomicTerms(economicTerms)))
+                    .addTradeLot(tradeLot)
+                    .setCounterparty(counterparties));
+
+            return TradeState.builder()
+                    .setTrade(trade)
+                    .build();
+        }
+
+        private Party toParty(String id, FpmlParty fpmlParty) {
+            Party.PartyBuilder party = Party.builder()
+                    .setMeta(MetaFields.builder().setExternalKey(id));
+            if (fpmlParty.name != null) {
+                party.setNameValue(fpmlParty.name);
+            }
+            if (fpmlParty.lei != null) {
+                party.addPartyId(PartyIdentifier.builder()
+                        .setIdentifierType(PartyIdentifierTypeEnum.LEI)
+                        .setIdentifierValue(fpmlParty.lei));
+            } else if (fpmlParty.otherId != null) {
+                party.addPartyId(PartyIdentifier.builder()
+                        .setIdentifierValue(fpmlParty.otherId));
+            }
+            return party.build();
+        }
+
+        private InterestRatePayout toInterestRatePayout(FpmlTrade fpmlTrade, String streamField, FpmlStream fpmlStream,
+                                                        NonNegativeQuantitySchedule quantity, Map<String, CounterpartyRoleEnum> roles) {
+            InterestRatePayout.InterestRatePayoutBuilder payout = InterestRatePayout.builder();
+
+            CounterpartyRoleEnum payer = roles.get(fpmlStream.payerHref);
+            CounterpartyRoleEnum receiver = roles.get(fpmlStream.receiverHref);
+            if (payer != null && receiver != null) {
+                payout.setPayerReceiver(PayerReceiver.builder()
+                        .setPayer(payer)
+                        .setReceiver(receiver));
+            }
+
+            Price fixedRate = convert(fpmlTrade, streamField + "fixedRate", fpmlStream.fixedRate, this::toRatePrice);
+            FloatingRateIndexEnum floatingRateIndex = convert(fpmlTrade, streamField + "floatingRateIndex",
+                    fpmlStream.floatingRateIndex, FloatingRateIndexEnum::fromDisplayName);
+            if (fixedRate != null) {
+                payout.setRateSpecification(RateSpecification.builder()
+                        .setFixedRate(FixedRateSpecification.builder()
+                                .setRateSchedule(RateSchedule.builder()
+                                        .setPriceValue(fixedRate))));
+            } else if (floatingRateIndex != null) {
+                FloatingRateOption.FloatingRateOptionBuilder rateOption = FloatingRateOption.builder()
+                        .setFloatingRateIndexValue(floatingRateIndex);
+                Integer tenorMultiplier = convert(fpmlTrade, streamField + "indexTenor.periodMultiplier",
+                        fpmlStream.indexTenorMultiplier, Integer::valueOf);
+                PeriodEnum tenorPeriod = convert(fpmlTrade, streamField + "indexTenor.period",
+                        fpmlStream.indexTenorPeriod, PeriodEnum::valueOf);
+                if (tenorMultiplier != null && tenorPeriod != null) {
+                    rateOption.setIndexTenor(Period.builder()
+                            .setPeriodMultiplier(tenorMultiplier)
+                            .setPeriod(tenorPeriod));
+                }
+                FloatingRateSpecification.FloatingRateSpecificationBuilder floatingRate = FloatingRateSpecification.builder()
+                        .setRateOptionValue(rateOption);
+                Price spread = convert(fpmlTrade, streamField + "spread", fpmlStream.spread, this::toRatePrice);
+                if (spread != null) {
+                    floatingRate.addSpreadSchedule(SpreadSchedule.builder()
+                            .setPriceValue(spread));
+                }
+                payout.setRateSpecification(RateSpecification.builder()
+                        .setFloatingRate(floatingRate));
+            }
+
+            DayCountFractionEnum dayCountFraction = convert(fpmlTrade, streamField + "dayCountFraction",
+                    fpmlStream.dayCountFraction, DayCountFractionEnum::fromDisplayName);
+            if (dayCountFraction != null) {
+                payout.setDayCountFraction(FieldWithMetaDayCountFractionEnum.builder()
+                        .setValue(dayCountFraction));
+            }
+
+            Integer frequencyMultiplier = convert(fpmlTrade, streamField + "paymentFrequency.periodMultiplier",
+                    fpmlStream.paymentFrequencyMultiplier, Integer::valueOf);
+            PeriodExtendedEnum frequencyPeriod = convert(fpmlTrade, streamField + "paymentFrequency.period",
+                    fpmlStream.paymentFrequencyPeriod, PeriodExtendedEnum::valueOf);
+            if (frequencyMultiplier != null && frequencyPeriod != null) {
+                payout.setPaymentDates(PaymentDates.builder()
+                        .setPaymentFrequency(Frequency.builder()
+                                .setPeriodMultiplier(frequencyMultiplier)
+                                .setPeriod(frequencyPeriod)));
+            }
+
+            if (quantity != null) {
+                payout.setPriceQuantity(ResolvablePriceQuantity.builder()
+                        .setQuantitySchedule(ReferenceWithMetaNonNegativeQuantitySchedule.builder()
+                                .setValue(quantity)));
+            }
+
+            return payout.build();
+        }
+
+        private NonNegativeQuantitySchedule toQuantity(FpmlTrade fpmlTrade, String streamField, FpmlStream fpmlStream) {
+            BigDecimal notional = convert(fpmlTrade, streamField + "notional", fpmlStream.notional, BigDecimal::new);
+            if (notional == null) {
+                return null;
+            }
+            return NonNegativeQuantitySchedule.builder()
+                    .setValue(notional)
+                    .setUnit(UnitType.builder().setCurrencyValue(fpmlStream.currency))
+                    .build();
+        }
+
+        private Price toRatePrice(String rate) {
+            return Price.builder()
+                    .setValue(new BigDecimal(rate))
+                    .setPriceType(PriceTypeEnum.INTEREST_RATE)
+                    .build();
+        }
+
+        private AdjustableOrRelativeDate toAdjustableOrRelativeDate(Date date) {
+            return AdjustableOrRelativeDate.builder()
+                    .setAdjustableDate(AdjustableDate.builder()
+                            .setUnadjustedDate(date))
+                    .build();
+        }
+
+        private Date toDate(String isoDate) {
+            // FpML dates may carry a time zone suffix, e.g. 2024-01-15Z
+            return Date.of(LocalDate.parse(isoDate.substring(0, 10)));
+        }
+    }
+}
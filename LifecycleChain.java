@@ -0,0 +1,164 @@
+package com.regnosys.drr.examples;
+
+import cdm.event.common.BusinessEvent;
+import cdm.event.common.TradeState;
+import cdm.event.workflow.WorkflowStep;
+import com.regnosys.drr.examples.util.TradeStateStore;
+import drr.regulation.cftc.rewrite.CFTCPart45TransactionReport;
+import drr.regulation.common.ReportableEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs an ordered sequence of lifecycle events (e.g. new trade, modification, termination) against one trade
+ * in a single pass.
+ *
+ * The trade is loaded once by the caller. Each step builds its instruction from the current TradeState,
+ * creates the accepted WorkflowStep and its reports, and the step's resulting after state becomes the
+ * before state of the next step - all in memory, with one set of DRR functions for the whole chain.
+ */
+public class LifecycleChain {
+
+    private static final Logger logger = LoggerFactory.getLogger(LifecycleChain.class);
+
+    /**
+     * Builds the WorkflowStep instruction of one lifecycle event from the trade's current state.
+     */
+    @FunctionalInterface
+    public interface EventInstruction {
+        WorkflowStep build(CFTCNewTradeAndTerminationReports pipeline, TradeState before);
+    }
+
+    public static final class Step {
+        private final String name;
+        private final EventInstruction instruction;
+
+        public Step(String name, EventInstruction instruction) {
+            this.name = name;
+            this.instruction = instruction;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static final Step NEW_TRADE = new Step("NEW_TRADE", CFTCNewTradeAndTerminationReports::getEnhancedNewTradeInstruction);
+    public static final Step TERMINATION = new Step("TERMINATION", CFTCNewTradeAndTerminationReports::getEnhancedTerminationInstruction);
+
+    /**
+     * MODIFY step: amend the current state to the amended trade's product (a terms change, reported by DRR as
+     * a modification). The step always reports; use {@link ReportDiffEngine} to drop amendments that change
+     * no reportable field.
+     */
+    public static Step modification(TradeState amendedTradeState) {
+        return new Step("MODIFY", (pipeline, before) -> pipeline.getEnhancedModificationInstruction(before, amendedTradeState));
+    }
+
+    /**
+     * Outcome of one step: the accepted workflow step, the trade state after it, and its reports.
+     */
+    public static final class StepResult {
+        private final String name;
+        private final WorkflowStep workflowStep;
+        private final TradeState after;
+        private final List<CFTCPart45TransactionReport> reports;
+
+        StepResult(String name, WorkflowStep workflowStep, TradeState after, List<CFTCPart45TransactionReport> reports) {
+            this.name = name;
+            this.workflowStep = workflowStep;
+            this.after = after;
+            this.reports = reports;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public WorkflowStep getWorkflowStep() {
+            return workflowStep;
+        }
+
+        public TradeState getAfter() {
+            return after;
+        }
+
+        public List<CFTCPart45TransactionReport> getReports() {
+            return reports;
+        }
+    }
+
+    private final CFTCNewTradeAndTerminationReports pipeline;
+    private final ReportingFunctions reportingFunctions;
+
+    public LifecycleChain() {
+        this(DrrReportingRuntime.get().getInstance(CFTCNewTradeAndTerminationReports.class));
+    }
+
+    LifecycleChain(CFTCNewTradeAndTerminationReports pipeline) {
+        this.pipeline = pipeline;
+        this.reportingFunctions = new ReportingFunctions(DrrReportingRuntime.get().getInjector());
+    }
+
+    /**
+     * Run the steps in order, threading each step's after state into the next.
+     */
+    public List<StepResult> run(TradeState initial, List<Step> steps) {
+        List<StepResult> results = new ArrayList<>(steps.size());
+        TradeState current = initial;
+        for (Step step : steps) {
+            WorkflowStep workflowStep = pipeline.createAcceptedWorkflowStep(step.instruction.build(pipeline, current));
+            List<ReportableEvent> reportableEvents = pipeline.createEnrichedReportableEvents(current, workflowStep);
+
+            List<CFTCPart45TransactionReport> reports = new ArrayList<>(reportableEvents.size());
+            for (ReportableEvent reportableEvent : reportableEvents) {
+                reports.add(reportingFunctions.generateCftcPart45Report(reportableEvent));
+            }
+
+            TradeState after = afterState(workflowStep);
+            results.add(new StepResult(step.getName(), workflowStep, after, Collections.unmodifiableList(reports)));
+            logger.info("✓ Lifecycle step {} produced {} report(s)", step.getName(), reports.size());
+
+            if (after != null) {
+                current = after;
+            } else {
+                logger.warn("⚠ Lifecycle step {} produced no after state - next step continues from the previous state", step.getName());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Run the steps against the latest stored state of the UTI, storing every step's after state as the
+     * trade's next version.
+     */
+    public List<StepResult> run(TradeStateStore store, String uti, List<Step> steps) throws IOException {
+        TradeState latest = store.getLatest(uti);
+        if (latest == null) {
+            throw new IllegalArgumentException("No stored TradeState for UTI " + uti);
+        }
+        List<StepResult> results = run(latest, steps);
+        for (StepResult result : results) {
+            if (result.getAfter() != null) {
+                store.putNextVersion(uti, result.getAfter());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The trade state after the accepted workflow step, or null when its business event has none.
+     */
+    static TradeState afterState(WorkflowStep workflowStep) {
+        BusinessEvent businessEvent = workflowStep.getBusinessEvent();
+        if (businessEvent == null || businessEvent.getAfter() == null || businessEvent.getAfter().isEmpty()) {
+            return null;
+        }
+        return businessEvent.getAfter().get(0);
+    }
+}
@@ -0,0 +1,106 @@
+package com.regnosys.drr.examples.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.regnosys.rosetta.common.serialisation.RosettaObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Zero-String input path for large CDM JSON documents.
+ *
+ * The file is memory-mapped with FileChannel.map and the mapped bytes are handed straight to Jackson's
+ * byte-based (UTF-8) parser, so the document is never copied into a byte[] or decoded into a String.
+ * Files larger than a single mapping (2GB) are mapped in consecutive regions and streamed in sequence.
+ */
+public final class MappedJsonInput {
+
+    private static final ObjectMapper rosettaMapper = RosettaObjectMapper.getNewRosettaObjectMapper();
+    private static final long MAX_REGION_SIZE = Integer.MAX_VALUE;
+
+    private MappedJsonInput() {
+    }
+
+    /**
+     * Map the whole file read-only. Only valid for files up to 2GB; larger files should use {@link #openStream(Path)}.
+     */
+    public static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAX_REGION_SIZE) {
+                throw new IOException("File too large for a single mapping (" + size + " bytes): " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Open an InputStream over the memory-mapped file, mapping it region by region.
+     */
+    public static InputStream openStream(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<InputStream> regions = new ArrayList<>();
+            for (long position = 0; position < size; position += MAX_REGION_SIZE) {
+                long regionSize = Math.min(MAX_REGION_SIZE, size - position);
+                regions.add(new ByteBufferBackedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize)));
+            }
+            if (regions.size() == 1) {
+                return regions.get(0);
+            }
+            return new SequenceInputStream(Collections.enumeration(regions));
+        }
+    }
+
+    /**
+     * Create a byte-based parser over the buffer. The buffer's position is not modified.
+     */
+    public static JsonParser createParser(ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            return rosettaMapper.getFactory().createParser(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        return rosettaMapper.getFactory().createParser(new ByteBufferBackedInputStream(buffer.duplicate()));
+    }
+
+    /**
+     * Deserialise a CDM object from the buffer without going through a String.
+     */
+    public static <T> T readValue(ByteBuffer buffer, Class<T> type) throws IOException {
+        try (JsonParser parser = createParser(buffer)) {
+            return rosettaMapper.readValue(parser, type);
+        }
+    }
+
+    /**
+     * Memory-map the file and parse it into a JSON tree.
+     */
+    public static JsonNode readTree(Path path) throws IOException {
+        try (InputStream in = openStream(path);
+             JsonParser parser = rosettaMapper.getFactory().createParser(in)) {
+            return rosettaMapper.readTree(parser);
+        }
+    }
+
+    /**
+     * Memory-map the file and deserialise a CDM object from it.
+     */
+    public static <T> T readValue(Path path, Class<T> type) throws IOException {
+        try (InputStream in = openStream(path);
+             JsonParser parser = rosettaMapper.getFactory().createParser(in)) {
+            return rosettaMapper.readValue(parser, type);
+        }
+    }
+}
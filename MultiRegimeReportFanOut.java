@@ -0,0 +1,370 @@
+package com.regnosys.drr.examples;
+
+import cdm.event.common.TradeState;
+import com.google.inject.Injector;
+import com.regnosys.drr.examples.util.CdmDocumentLoader;
+import com.rosetta.model.lib.reports.ReportFunction;
+import drr.regulation.common.PartyInformation;
+import drr.regulation.common.ReportableEvent;
+import drr.regulation.common.ReportingRegime;
+import drr.regulation.common.ReportingSide;
+import drr.regulation.common.SupervisoryBodyEnum;
+import drr.regulation.common.TransactionReportInstruction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fans one ReportableEvent out to the report functions of several regimes.
+ *
+ * The reportable event (with its ReportableInformation) and the TransactionReportInstruction are computed
+ * once. Every configured regime whose supervisory body appears in the party regime information of the input is
+ * then evaluated in parallel on that shared, immutable instruction, instead of each regime running as its own
+ * job and repeating loading, workflow creation and Create_ReportableEvents. A regime whose supervisory body the
+ * input does not declare is not evaluated and gets a "not reportable" result - eligibility data for a regime
+ * is never made up.
+ *
+ * Regimes are chosen with -Ddrr.regimes=CFTC_PART45,CFTC_PART43,... (default: all known regimes). Report
+ * functions are looked up by class name, which can be overridden per regime with
+ * -Ddrr.regime.<REGIME>.function=<class>, as can the supervisory body with
+ * -Ddrr.regime.<REGIME>.supervisoryBody=<SupervisoryBodyEnum>. A regime that was asked for explicitly must
+ * resolve, otherwise construction fails; with the default list, regimes whose function is not on the
+ * classpath are skipped with a warning.
+ */
+public class MultiRegimeReportFanOut implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MultiRegimeReportFanOut.class);
+
+    /**
+     * Report functions of the regimes listed in the DRR pipeline notes, by regime name.
+     */
+    static final Map<String, String> DEFAULT_REPORT_FUNCTIONS;
+
+    /**
+     * Supervisory body of each known regime, by regime name.
+     */
+    static final Map<String, String> DEFAULT_SUPERVISORY_BODIES;
+
+    static {
+        Map<String, String> bodies = new LinkedHashMap<>();
+        bodies.put("CFTC_PART45", "CFTC");
+        bodies.put("CFTC_PART43", "CFTC");
+        bodies.put("ESMA_EMIR", "ESMA");
+        bodies.put("FCA_UKEMIR", "FCA");
+        bodies.put("ASIC", "ASIC");
+        bodies.put("MAS", "MAS");
+        bodies.put("JFSA", "JFSA");
+        bodies.put("HKMA", "HKMA");
+        bodies.put("CSA", "CSA");
+        DEFAULT_SUPERVISORY_BODIES = Collections.unmodifiableMap(bodies);
+
+        Map<String, String> functions = new LinkedHashMap<>();
+        functions.put("CFTC_PART45", "drr.regulation.cftc.rewrite.reports.CFTCPart45ReportFunction");
+        functions.put("CFTC_PART43", "drr.regulation.cftc.rewrite.reports.CFTCPart43ReportFunction");
+        functions.put("ESMA_EMIR", "drr.regulation.esma.emir.refit.trade.reports.ESMAEMIRTradeReportFunction");
+        functions.put("FCA_UKEMIR", "drr.regulation.fca.ukemir.refit.trade.reports.FCAUKEMIRTradeReportFunction");
+        functions.put("ASIC", "drr.regulation.asic.rewrite.trade.reports.ASICTradeReportFunction");
+        functions.put("MAS", "drr.regulation.mas.rewrite.trade.reports.MASTradeReportFunction");
+        functions.put("JFSA", "drr.regulation.jfsa.rewrite.trade.reports.JFSARewriteTradeReportFunction");
+        functions.put("HKMA", "drr.regulation.hkma.rewrite.trade.reports.HKMADTCCTradeReportFunction");
+        functions.put("CSA", "drr.regulation.csa.rewrite.trade.reports.CSATradeReportFunction");
+        DEFAULT_REPORT_FUNCTIONS = Collections.unmodifiableMap(functions);
+    }
+
+    /**
+     * Outcome of one regime's report: the report object, the failure, or not reportable under the regime.
+     */
+    public static final class RegimeReport {
+        private final String regime;
+        private final Object report;
+        private final Exception error;
+        private final boolean reportable;
+
+        RegimeReport(String regime, Object report, Exception error) {
+            this(regime, report, error, true);
+        }
+
+        private RegimeReport(String regime, Object report, Exception error, boolean reportable) {
+            this.regime = regime;
+            this.report = report;
+            this.error = error;
+            this.reportable = reportable;
+        }
+
+        static RegimeReport notReportable(String regime) {
+            return new RegimeReport(regime, null, null, false);
+        }
+
+        public String getRegime() {
+            return regime;
+        }
+
+        public Object getReport() {
+            return report;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        /**
+         * True unless the report failed; a regime the event is not reportable under is not a failure.
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * False when the input declares no party regime information for the regime's supervisory body, in
+         * which case no report was generated.
+         */
+        public boolean isReportable() {
+            return reportable;
+        }
+    }
+
+    /**
+     * A regime's report function class with a pool of instances, so concurrent evaluations never share one.
+     */
+    private static final class RegimeFunction {
+        private final String regime;
+        private final SupervisoryBodyEnum supervisoryBody;
+        private final Class<? extends ReportFunction<TransactionReportInstruction, ?>> type;
+        private final Injector injector;
+        private final Queue<ReportFunction<TransactionReportInstruction, ?>> instances = new ConcurrentLinkedQueue<>();
+
+        RegimeFunction(String regime, SupervisoryBodyEnum supervisoryBody, Class<? extends ReportFunction<TransactionReportInstruction, ?>> type, Injector injector) {
+            this.regime = regime;
+            this.supervisoryBody = supervisoryBody;
+            this.type = type;
+            this.injector = injector;
+        }
+
+        Object evaluate(TransactionReportInstruction instruction) {
+            ReportFunction<TransactionReportInstruction, ?> function = instances.poll();
+            if (function == null) {
+                function = injector.getInstance(type);
+            }
+            try {
+                return function.evaluate(instruction);
+            } finally {
+                instances.add(function);
+            }
+        }
+    }
+
+    private final DrrReportingRuntime runtime;
+    private final List<RegimeFunction> regimeFunctions = new ArrayList<>();
+    private final ExecutorService executor;
+
+    /**
+     * Regimes from -Ddrr.regimes (all required), or every known regime that is available.
+     */
+    public MultiRegimeReportFanOut() {
+        this(configuredRegimes(), System.getProperty("drr.regimes") != null);
+    }
+
+    /**
+     * Fan out to exactly these regimes; fails if any of them cannot be resolved.
+     */
+    public MultiRegimeReportFanOut(List<String> regimes) {
+        this(regimes, true);
+    }
+
+    private MultiRegimeReportFanOut(List<String> regimes, boolean required) {
+        this.runtime = DrrReportingRuntime.get();
+        for (String regime : regimes) {
+            try {
+                regimeFunctions.add(resolve(regime));
+            } catch (IllegalArgumentException e) {
+                if (required) {
+                    throw e;
+                }
+                logger.warn("⚠ Skipping regime {}: {}", regime, e.getMessage());
+            }
+        }
+        if (regimeFunctions.isEmpty()) {
+            throw new IllegalStateException("No regime report functions available for " + regimes);
+        }
+        this.executor = Executors.newFixedThreadPool(Math.min(regimeFunctions.size(), Runtime.getRuntime().availableProcessors()));
+        logger.info("✓ Multi-regime fan-out configured for {}", getRegimes());
+    }
+
+    private RegimeFunction resolve(String regime) {
+        String className = System.getProperty("drr.regime." + regime + ".function", DEFAULT_REPORT_FUNCTIONS.get(regime));
+        String bodyName = System.getProperty("drr.regime." + regime + ".supervisoryBody", DEFAULT_SUPERVISORY_BODIES.get(regime));
+        if (className == null || bodyName == null) {
+            throw new IllegalArgumentException("Unknown regime " + regime + " - set -Ddrr.regime." + regime
+                    + ".function and -Ddrr.regime." + regime + ".supervisoryBody");
+        }
+        SupervisoryBodyEnum supervisoryBody;
+        try {
+            supervisoryBody = SupervisoryBodyEnum.valueOf(bodyName);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Regime " + regime + ": unknown supervisory body " + bodyName, e);
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            Class<? extends ReportFunction<TransactionReportInstruction, ?>> type =
+                    (Class<? extends ReportFunction<TransactionReportInstruction, ?>>) Class.forName(className).asSubclass(ReportFunction.class);
+            return new RegimeFunction(regime, supervisoryBody, type, runtime.getInjector());
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IllegalArgumentException("Regime " + regime + ": report function " + className + " not available", e);
+        }
+    }
+
+    private static List<String> configuredRegimes() {
+        String regimes = System.getProperty("drr.regimes");
+        if (regimes == null) {
+            return new ArrayList<>(DEFAULT_REPORT_FUNCTIONS.keySet());
+        }
+        List<String> configured = new ArrayList<>();
+        Arrays.stream(regimes.split(",")).map(String::trim).filter(r -> !r.isEmpty()).forEach(configured::add);
+        return configured;
+    }
+
+    public List<String> getRegimes() {
+        List<String> regimes = new ArrayList<>(regimeFunctions.size());
+        regimeFunctions.forEach(function -> regimes.add(function.regime));
+        return regimes;
+    }
+
+    /**
+     * Build the NEW TRADE reportable events once, then fan each out to every regime.
+     *
+     * @return one map of regime reports per reportable event
+     */
+    public List<Map<String, RegimeReport>> generateNewTradeReports(TradeState tradeState) {
+        CFTCNewTradeAndTerminationReports pipeline = runtime.getInstance(CFTCNewTradeAndTerminationReports.class);
+        List<Map<String, RegimeReport>> reports = new ArrayList<>();
+        for (ReportableEvent reportableEvent : pipeline.createNewTradeReportableEvents(tradeState)) {
+            reports.add(generateReports(reportableEvent));
+        }
+        return reports;
+    }
+
+    /**
+     * Fan out with PARTY_1 reporting against PARTY_2.
+     */
+    public Map<String, RegimeReport> generateReports(ReportableEvent reportableEvent) {
+        return generateReports(reportableEvent, runtime.defaultReportingSide(reportableEvent));
+    }
+
+    /**
+     * Evaluate the report function of every configured regime the event is reportable under in parallel, on one
+     * shared report instruction.
+     *
+     * @return the reports by regime, in configuration order
+     */
+    public Map<String, RegimeReport> generateReports(ReportableEvent reportableEvent, ReportingSide reportingSide) {
+        TransactionReportInstruction instruction = null;
+        RuntimeException instructionError = null;
+        List<CompletableFuture<RegimeReport>> futures = new ArrayList<>(regimeFunctions.size());
+        for (RegimeFunction function : regimeFunctions) {
+            if (!declaresSupervisoryBody(reportableEvent, function.supervisoryBody)) {
+                logger.info("Not reportable under {}: no party regime information for {}", function.regime, function.supervisoryBody);
+                futures.add(CompletableFuture.completedFuture(RegimeReport.notReportable(function.regime)));
+                continue;
+            }
+            if (instruction == null && instructionError == null) {
+                try {
+                    instruction = runtime.getCreateTransactionReportInstruction().evaluate(reportableEvent, reportingSide);
+                } catch (RuntimeException e) {
+                    logger.error("Failed to create the report instruction", e);
+                    instructionError = e;
+                }
+            }
+            if (instructionError != null) {
+                futures.add(CompletableFuture.completedFuture(new RegimeReport(function.regime, null, instructionError)));
+                continue;
+            }
+            TransactionReportInstruction shared = instruction;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return new RegimeReport(function.regime, function.evaluate(shared), null);
+                } catch (Exception e) {
+                    logger.error("Failed to generate {} report", function.regime, e);
+                    return new RegimeReport(function.regime, null, e);
+                }
+            }, executor));
+        }
+
+        Map<String, RegimeReport> reports = new LinkedHashMap<>();
+        for (CompletableFuture<RegimeReport> future : futures) {
+            RegimeReport report = future.join();
+            reports.put(report.getRegime(), report);
+        }
+        return reports;
+    }
+
+    /**
+     * Whether any party's regime information in the event names the supervisory body.
+     */
+    static boolean declaresSupervisoryBody(ReportableEvent reportableEvent, SupervisoryBodyEnum supervisoryBody) {
+        if (reportableEvent.getReportableInformation() == null || reportableEvent.getReportableInformation().getPartyInformation() == null) {
+            return false;
+        }
+        for (PartyInformation partyInformation : reportableEvent.getReportableInformation().getPartyInformation()) {
+            if (partyInformation.getRegimeInformation() == null) {
+                continue;
+            }
+            for (ReportingRegime regime : partyInformation.getRegimeInformation()) {
+                if (regime.getSupervisoryBody() != null && regime.getSupervisoryBody().getValue() == supervisoryBody) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java MultiRegimeReportFanOut <trade-json-path>");
+            System.err.println("  -Ddrr.regimes=CFTC_PART45,ESMA_EMIR,... selects the regimes (default: all available)");
+            System.err.println("  Reports go to the NDJSON report sink with -Ddrr.sink.dir=<dir>, to stdout otherwise");
+            System.exit(1);
+        }
+        TradeState tradeState = CdmDocumentLoader.loadTradeState(args[0]);
+        DrrReportingRuntime runtime = DrrReportingRuntime.get();
+        int failures = 0;
+        try (MultiRegimeReportFanOut fanOut = new MultiRegimeReportFanOut()) {
+            List<Map<String, RegimeReport>> reports = fanOut.generateNewTradeReports(tradeState);
+            for (int i = 0; i < reports.size(); i++) {
+                for (RegimeReport report : reports.get(i).values()) {
+                    if (!report.isReportable()) {
+                        logger.info("Reportable event {}: not reportable under {}", i + 1, report.getRegime());
+                    } else if (report.isSuccess()) {
+                        logger.info("=== Reportable event {}: {} ===", i + 1, report.getRegime());
+                        runtime.emitReport(report.getReport());
+                    } else {
+                        failures++;
+                        System.err.println("✗ Reportable event " + (i + 1) + ": " + report.getRegime() + " failed: " + report.getError().getMessage());
+                    }
+                }
+            }
+            runtime.flushReports();
+            logger.info("=== Multi-regime fan-out completed: {} reportable event(s), {} regime(s), {} failure(s) ===",
+                    reports.size(), fanOut.getRegimes().size(), failures);
+        }
+        if (failures > 0) {
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.regnosys.drr.examples.util;
+
+import cdm.event.common.TradeState;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.regnosys.rosetta.common.serialisation.RosettaObjectMapper;
+import com.rosetta.model.lib.RosettaModelObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Streaming reader for newline-delimited JSON (NDJSON) extracts of CDM objects.
+ *
+ * Records are pulled one at a time from a Jackson streaming parser over the Rosetta object mapper, so only the
+ * record currently being processed is held in memory - the extract itself is never materialised as a String.
+ *
+ * A record that cannot be used (invalid JSON, unknown document type, no TradeState) is reported to a
+ * {@link SkippedRecordHandler} with the line it starts on and the rest of the extract is still processed.
+ * The one exception is JSON so broken that the parser cannot find the start of the next record - the rest of
+ * that stream is then reported as skipped too.
+ */
+public final class NdjsonCdmReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(NdjsonCdmReader.class);
+
+    /**
+     * Told about a record that was skipped. May throw to abort the read instead.
+     */
+    @FunctionalInterface
+    public interface SkippedRecordHandler {
+        void skipped(String source, long line, Exception cause);
+    }
+
+    /** Logs the skipped record and carries on. */
+    public static final SkippedRecordHandler LOG_AND_CONTINUE = (source, line, cause) ->
+            logger.warn("Skipped record at {} line {}: {}", source, line, cause.getMessage());
+
+    private static final ObjectMapper rosettaMapper = RosettaObjectMapper.getNewRosettaObjectMapper();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private NdjsonCdmReader() {
+    }
+
+    /**
+     * Open a lazy iterator of records of a single known CDM type. The caller must close the iterator.
+     */
+    public static <T extends RosettaModelObject> MappingIterator<T> open(InputStream in, Class<T> type) throws IOException {
+        JsonParser parser = rosettaMapper.getFactory().createParser(in);
+        return rosettaMapper.readerFor(type).readValues(parser);
+    }
+
+    /**
+     * Stream every record of a single known CDM type to the consumer, resolving references per record.
+     *
+     * @return the number of records processed
+     */
+    public static <T extends RosettaModelObject> long forEach(Path path, Class<T> type, Consumer<? super T> consumer) throws IOException {
+        long count = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+             MappingIterator<T> records = open(in, type)) {
+            while (records.hasNextValue()) {
+                consumer.accept(CdmDocumentLoader.resolveReferences(records.nextValue()));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stream a mixed extract of TradeState / WorkflowStep / ReportableEvent / BusinessEvent / Trade records,
+     * handing the TradeState carried by each record to the consumer. Each record's type is detected from its
+     * own root fields, so one extract may mix record types. Unusable records are logged and skipped.
+     *
+     * @return the number of records handed to the consumer
+     */
+    public static long forEachTradeState(Path path, Consumer<? super TradeState> consumer) throws IOException {
+        return forEachTradeState(path, consumer, LOG_AND_CONTINUE);
+    }
+
+    public static long forEachTradeState(Path path, Consumer<? super TradeState> consumer, SkippedRecordHandler skipped) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)) {
+            return forEachTradeState(in, path.toString(), consumer, skipped);
+        }
+    }
+
+    /**
+     * Stream the records of an already opened stream. Exceptions thrown by the consumer are not caught.
+     *
+     * @param source name of the stream, used when reporting skipped records
+     */
+    public static long forEachTradeState(InputStream in, String source, Consumer<? super TradeState> consumer,
+                                         SkippedRecordHandler skipped) throws IOException {
+        long count = 0;
+        JsonParser parser = rosettaMapper.getFactory().createParser(in);
+        try (MappingIterator<JsonNode> records = rosettaMapper.readerFor(JsonNode.class).readValues(parser)) {
+            while (true) {
+                long line = parser.getCurrentLocation().getLineNr();
+                try {
+                    if (!records.hasNextValue()) {
+                        break;
+                    }
+                } catch (IOException e) {
+                    // The parser cannot resynchronise - nothing further in this stream can be read
+                    skipped.skipped(source, line, new IOException("Unreadable JSON, rest of the stream skipped: " + e.getMessage(), e));
+                    break;
+                }
+                line = parser.getTokenLocation().getLineNr();
+                TradeState tradeState;
+                try {
+                    tradeState = toTradeState(records.nextValue(), source + " line " + line);
+                } catch (IOException | RuntimeException e) {
+                    skipped.skipped(source, line, e);
+                    continue;
+                }
+                consumer.accept(tradeState);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static TradeState toTradeState(JsonNode record, String description) throws IOException {
+        CdmDocumentLoader.LoadedDocument document = CdmDocumentLoader.fromTree(record, description);
+        TradeState tradeState = CdmDocumentLoader.extractTradeState(document);
+        if (tradeState == null || tradeState.getTrade() == null) {
+            throw new IllegalStateException(description + " (" + document.getType() + ") does not carry a TradeState");
+        }
+        return tradeState;
+    }
+}
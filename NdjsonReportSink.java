@@ -0,0 +1,203 @@
+package com.regnosys.drr.examples.util;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.regnosys.rosetta.common.serialisation.RosettaObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Production output path for reports: compact JSON, one report per line (NDJSON), appended to rolling files.
+ *
+ * - One preconfigured ObjectWriter is shared by all sinks, so serializers are built once per process.
+ * - Lines are staged in a direct buffer and written to the FileChannel when it fills, not per report.
+ * - The channel is fsynced once per syncEveryReports reports (and on flush / roll / close), not per report.
+ * - The current file is rolled when the next line would take it past maxFileBytes, or once it is older
+ *   than rollMillis. Files are named <prefix>-<yyyyMMdd-HHmmss>-<sequence>.ndjson (UTC).
+ * - A background flusher checks every maxDelayMillis: staged lines are written and fsynced, and an expired
+ *   file is rolled, even when no further report arrives.
+ *
+ * Configured from system properties by {@link #fromSystemProperties()}: -Ddrr.sink.dir (required),
+ * -Ddrr.sink.prefix, -Ddrr.sink.maxFileBytes, -Ddrr.sink.rollSeconds, -Ddrr.sink.syncEveryReports and
+ * -Ddrr.sink.maxDelayMillis.
+ */
+public final class NdjsonReportSink implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NdjsonReportSink.class);
+    private static final ObjectWriter compactWriter = RosettaObjectMapper.getNewRosettaObjectMapper().writer();
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss", Locale.ROOT);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte NEWLINE = '\n';
+
+    private final Path directory;
+    private final String prefix;
+    private final long maxFileBytes;
+    private final long rollMillis;
+    private final int syncEveryReports;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ScheduledExecutorService flusher;
+
+    private FileChannel channel;
+    private Path currentFile;
+    private long fileBytes;
+    private long fileOpenedMillis;
+    private int fileSequence;
+    private int unsyncedReports;
+    private long reportCount;
+
+    public NdjsonReportSink(Path directory, String prefix, long maxFileBytes, long rollMillis, int syncEveryReports) throws IOException {
+        this(directory, prefix, maxFileBytes, rollMillis, syncEveryReports, 1000);
+    }
+
+    /**
+     * @param maxDelayMillis how long a written report may wait for its fsync, and how late an expired file
+     *                       may be rolled, when no further report arrives
+     */
+    public NdjsonReportSink(Path directory, String prefix, long maxFileBytes, long rollMillis, int syncEveryReports,
+                            long maxDelayMillis) throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.maxFileBytes = maxFileBytes;
+        this.rollMillis = rollMillis;
+        this.syncEveryReports = Math.max(1, syncEveryReports);
+        Files.createDirectories(directory);
+        openNextFile();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "drr-report-sink-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, maxDelayMillis);
+        flusher.scheduleWithFixedDelay(this::flushIfDue, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sink configured with -Ddrr.sink.* properties, or null when -Ddrr.sink.dir is not set.
+     */
+    public static NdjsonReportSink fromSystemProperties() throws IOException {
+        String dir = System.getProperty("drr.sink.dir");
+        if (dir == null) {
+            return null;
+        }
+        return new NdjsonReportSink(Paths.get(dir),
+                System.getProperty("drr.sink.prefix", "cftc-part45"),
+                Long.getLong("drr.sink.maxFileBytes", 256L * 1024 * 1024),
+                Long.getLong("drr.sink.rollSeconds", 3600) * 1000,
+                Integer.getInteger("drr.sink.syncEveryReports", 256),
+                Long.getLong("drr.sink.maxDelayMillis", 1000));
+    }
+
+    /**
+     * Append one report as a compact JSON line. Durable after the next group fsync.
+     */
+    public synchronized void write(Object report) throws IOException {
+        byte[] json = compactWriter.writeValueAsBytes(report);
+        int lineLength = json.length + 1;
+
+        if (fileBytes > 0 && (fileBytes + lineLength > maxFileBytes || System.currentTimeMillis() - fileOpenedMillis >= rollMillis)) {
+            roll();
+        }
+        if (lineLength > buffer.remaining()) {
+            drainBuffer();
+        }
+        if (lineLength > buffer.capacity()) {
+            // Larger than the staging buffer - write it straight through
+            writeFully(ByteBuffer.wrap(json));
+            writeFully(ByteBuffer.wrap(new byte[]{NEWLINE}));
+        } else {
+            buffer.put(json).put(NEWLINE);
+        }
+        fileBytes += lineLength;
+        reportCount++;
+
+        if (++unsyncedReports >= syncEveryReports) {
+            flush();
+        }
+    }
+
+    /**
+     * Write out staged lines and fsync the current file.
+     */
+    public synchronized void flush() throws IOException {
+        drainBuffer();
+        if (unsyncedReports > 0) {
+            channel.force(false);
+            unsyncedReports = 0;
+        }
+    }
+
+    /**
+     * Background flusher: roll the file once it has expired, otherwise write out and fsync pending reports.
+     */
+    private synchronized void flushIfDue() {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            if (fileBytes > 0 && System.currentTimeMillis() - fileOpenedMillis >= rollMillis) {
+                roll();
+            } else if (unsyncedReports > 0) {
+                flush();
+            }
+        } catch (IOException e) {
+            logger.error("Report sink flush failed - retrying on the next report or flush", e);
+        }
+    }
+
+    private void drainBuffer() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private void roll() throws IOException {
+        flush();
+        channel.close();
+        openNextFile();
+    }
+
+    private void openNextFile() throws IOException {
+        fileOpenedMillis = System.currentTimeMillis();
+        String timestamp = FILE_TIMESTAMP.format(LocalDateTime.ofEpochSecond(fileOpenedMillis / 1000, 0, ZoneOffset.UTC));
+        currentFile = directory.resolve(String.format("%s-%s-%06d.ndjson", prefix, timestamp, ++fileSequence));
+        channel = FileChannel.open(currentFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileBytes = channel.size();
+    }
+
+    public synchronized Path getCurrentFile() {
+        return currentFile;
+    }
+
+    public synchronized long getReportCount() {
+        return reportCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flusher.shutdown();
+        if (channel.isOpen()) {
+            flush();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.regnosys.drr.examples;
+
+import com.google.inject.Injector;
+import drr.regulation.common.ReportableEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Batch CFTC Part 45 report generation spread across all cores on a work-stealing ForkJoinPool.
+ *
+ * The batch is split recursively into index ranges; every pool worker uses its own {@link ReportingFunctions}
+ * bundle. Results are returned in input order, and a failing item is captured in its {@link ReportResult}
+ * without aborting the rest of the batch.
+ *
+ * Each instance owns a pool until {@link #close()}; pipelines share the process-wide instance from
+ * {@link DrrReportingRuntime#getReportGenerator()} rather than creating their own.
+ */
+public class ParallelReportGenerator implements AutoCloseable {
+
+    /** Items processed sequentially by one task before it stops splitting. */
+    private static final int SEQUENTIAL_THRESHOLD = 4;
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<ReportingFunctions> workerFunctions;
+
+    public ParallelReportGenerator(Injector injector, int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.workerFunctions = ThreadLocal.withInitial(() -> new ReportingFunctions(injector));
+    }
+
+    /**
+     * Generate the report for every event (PARTY_1 reporting against PARTY_2).
+     *
+     * @return one result per input event, in input order
+     */
+    public List<ReportResult> generateReports(Collection<? extends ReportableEvent> reportableEvents) {
+        ReportableEvent[] events = reportableEvents.toArray(new ReportableEvent[0]);
+        ReportResult[] results = new ReportResult[events.length];
+        if (events.length > 0) {
+            pool.invoke(new ReportTask(events, results, 0, events.length));
+        }
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private final class ReportTask extends RecursiveAction {
+        private final ReportableEvent[] events;
+        private final ReportResult[] results;
+        private final int from;
+        private final int to;
+
+        ReportTask(ReportableEvent[] events, ReportResult[] results, int from, int to) {
+            this.events = events;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                ReportingFunctions functions = workerFunctions.get();
+                for (int i = from; i < to; i++) {
+                    try {
+                        results[i] = ReportResult.success(i, events[i], functions.generateCftcPart45Report(events[i]));
+                    } catch (Exception e) {
+                        results[i] = ReportResult.failure(i, events[i], e);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ReportTask(events, results, from, middle), new ReportTask(events, results, middle, to));
+        }
+    }
+}
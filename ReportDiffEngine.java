@@ -0,0 +1,283 @@
+package com.regnosys.drr.examples;
+
+import cdm.event.common.Reset;
+import cdm.event.common.TradeState;
+import cdm.observable.asset.Price;
+import com.regnosys.drr.examples.util.CdmObjectCache;
+import drr.regulation.common.ReportableEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.regnosys.rosetta.common.serialisation.RosettaObjectMapper;
+import com.rosetta.model.lib.records.Date;
+import drr.regulation.cftc.rewrite.CFTCPart45TransactionReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiFunction;
+
+/**
+ * Field-level diff of CFTC Part 45 reports (and of the TradeStates behind them), used to emit a modification
+ * (MODI) report for an amended TradeState only when a reportable value actually changed.
+ *
+ * Reports are compared as JSON trees, field by field. Ignored fields are given as paths from the report root
+ * with array indices left out (e.g. "otherPayment.paymentDate"), so a name is only ignored where it is meant
+ * to be. By default the top-level fields that change on every run without changing what is reported (action
+ * / event type, the generated event identifier, timestamps of the reporting run) and the UTI, which a
+ * modification carries over from the previous report, are ignored. The execution timestamp is compared: the
+ * modification instruction carries the original execution of the trade, so it only differs when the
+ * execution itself was amended. Rosetta "meta" objects (keys and references) are not reported data and are
+ * skipped at any depth. A TradeState prefilter skips report generation entirely when the amendment did not
+ * change the trade at all.
+ *
+ * The modification report itself is generated by DRR from a terms-change event (see
+ * CFTCNewTradeAndTerminationReports#createModificationReportableEvents), so its action type, event type and
+ * other lifecycle fields describe an amendment rather than a new trade.
+ */
+public class ReportDiffEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportDiffEngine.class);
+    private static final ObjectMapper rosettaMapper = RosettaObjectMapper.getNewRosettaObjectMapper();
+
+    /** Report field paths that never trigger a modification on their own. */
+    public static final Set<String> DEFAULT_IGNORED_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "actionType",
+            "eventType",
+            "eventIdentifier",
+            "eventTimestamp",
+            "reportSubmissionTimestamp",
+            "uniqueTransactionIdentifier"
+    )));
+
+    /** Rosetta metadata objects, skipped wherever they occur. */
+    private static final String META_FIELD = "meta";
+
+    private static final String MODIFICATION_ACTION_TYPE = "MODI";
+
+    /** Fields carried over from the previous report into the modification. */
+    private static final List<String> IDENTITY_FIELDS = Collections.singletonList("uniqueTransactionIdentifier");
+
+    /**
+     * One changed value, addressed by its JSON path, e.g. "notionalAmountLeg1" or "otherPayment[0].paymentAmount".
+     */
+    public static final class FieldChange {
+        private final String path;
+        private final JsonNode before;
+        private final JsonNode after;
+
+        FieldChange(String path, JsonNode before, JsonNode after) {
+            this.path = path;
+            this.before = before;
+            this.after = after;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public JsonNode getBefore() {
+            return before;
+        }
+
+        public JsonNode getAfter() {
+            return after;
+        }
+
+        @Override
+        public String toString() {
+            return path + ": " + before + " -> " + after;
+        }
+    }
+
+    private final Set<String> ignoredPaths;
+
+    public ReportDiffEngine() {
+        this(DEFAULT_IGNORED_FIELDS);
+    }
+
+    /**
+     * @param ignoredPaths field paths from the root, array indices left out
+     */
+    public ReportDiffEngine(Set<String> ignoredPaths) {
+        this.ignoredPaths = ignoredPaths;
+    }
+
+    /**
+     * Reportable field changes between two reports.
+     */
+    public List<FieldChange> diff(CFTCPart45TransactionReport previous, CFTCPart45TransactionReport amended) {
+        return diff(rosettaMapper.valueToTree(previous), rosettaMapper.valueToTree(amended));
+    }
+
+    public List<FieldChange> diff(JsonNode previous, JsonNode amended) {
+        List<FieldChange> changes = new ArrayList<>();
+        diff("", "", previous, amended, changes);
+        return changes;
+    }
+
+    /**
+     * @param path       path of the value, with array indices, as reported in FieldChange
+     * @param fieldPath  the same path without array indices, matched against the ignored paths
+     */
+    private void diff(String path, String fieldPath, JsonNode before, JsonNode after, List<FieldChange> changes) {
+        if (isMissing(before) && isMissing(after)) {
+            return;
+        }
+        if (isMissing(before) || isMissing(after) || before.getNodeType() != after.getNodeType()) {
+            changes.add(new FieldChange(path, before, after));
+        } else if (before.isObject()) {
+            Set<String> fields = new TreeSet<>();
+            before.fieldNames().forEachRemaining(fields::add);
+            after.fieldNames().forEachRemaining(fields::add);
+            for (String field : fields) {
+                String childFieldPath = fieldPath.isEmpty() ? field : fieldPath + "." + field;
+                if (!META_FIELD.equals(field) && !ignoredPaths.contains(childFieldPath)) {
+                    diff(path.isEmpty() ? field : path + "." + field, childFieldPath, before.get(field), after.get(field), changes);
+                }
+            }
+        } else if (before.isArray()) {
+            int size = Math.max(before.size(), after.size());
+            for (int i = 0; i < size; i++) {
+                diff(path + "[" + i + "]", fieldPath, before.get(i), after.get(i), changes);
+            }
+        } else if (before.isNumber()) {
+            // 1.0 and 1.00 are the same reported value
+            if (before.decimalValue().compareTo(after.decimalValue()) != 0) {
+                changes.add(new FieldChange(path, before, after));
+            }
+        } else if (!before.equals(after)) {
+            changes.add(new FieldChange(path, before, after));
+        }
+    }
+
+    private static boolean isMissing(JsonNode node) {
+        return node == null || node.isNull() || node.isMissingNode();
+    }
+
+    /**
+     * Prefilter: whether the amended TradeState differs from the previous one at all (metadata keys ignored).
+     */
+    public boolean tradeStateChanged(TradeState previous, TradeState amended) {
+        return !new ReportDiffEngine(Collections.emptySet()).diff(
+                rosettaMapper.valueToTree(previous), rosettaMapper.valueToTree(amended)).isEmpty();
+    }
+
+    /**
+     * Decide whether an amended TradeState needs a modification report, generating it through the shared
+     * runtime as a terms-change event (PARTY_1 reporting against PARTY_2).
+     */
+    public Optional<CFTCPart45TransactionReport> modificationReport(CFTCPart45TransactionReport previousReport,
+                                                                    TradeState previousTradeState,
+                                                                    TradeState amendedTradeState) throws IOException {
+        DrrReportingRuntime runtime = DrrReportingRuntime.get();
+        CFTCNewTradeAndTerminationReports pipeline = runtime.getInstance(CFTCNewTradeAndTerminationReports.class);
+        return modificationReport(previousReport, previousTradeState, amendedTradeState, (previous, amended) -> {
+            List<ReportableEvent> events = pipeline.createModificationReportableEvents(previous, amended);
+            if (events.isEmpty()) {
+                throw new IllegalStateException("DRR produced no reportable event for the amendment");
+            }
+            return runtime.generateCftcPart45Report(events.get(0));
+        });
+    }
+
+    /**
+     * Decide whether an amended TradeState needs a modification report.
+     *
+     * @param previousReport the last report submitted for the UTI
+     * @param reporter       generates the report of the amendment from the previous to the amended TradeState
+     *                       through DRR (only called if the TradeState changed); it must be a MODI report
+     * @return the MODI report carrying the previous report's UTI, or empty when no reportable value changed
+     */
+    public Optional<CFTCPart45TransactionReport> modificationReport(CFTCPart45TransactionReport previousReport,
+                                                                    TradeState previousTradeState,
+                                                                    TradeState amendedTradeState,
+                                                                    BiFunction<TradeState, TradeState, CFTCPart45TransactionReport> reporter) throws IOException {
+        if (!tradeStateChanged(previousTradeState, amendedTradeState)) {
+            logger.info("TradeState unchanged - no modification report");
+            return Optional.empty();
+        }
+
+        CFTCPart45TransactionReport amendedReport = reporter.apply(previousTradeState, amendedTradeState);
+        JsonNode previous = rosettaMapper.valueToTree(previousReport);
+        ObjectNode amended = rosettaMapper.valueToTree(amendedReport);
+        String actionType = amended.path("actionType").asText();
+        if (!MODIFICATION_ACTION_TYPE.equals(actionType)) {
+            throw new IllegalArgumentException("Reporter must report the amendment as " + MODIFICATION_ACTION_TYPE
+                    + ", got action type " + actionType);
+        }
+        List<FieldChange> changes = diff(previous, amended);
+        if (changes.isEmpty()) {
+            logger.info("TradeState changed but no reportable field changed - no modification report");
+            return Optional.empty();
+        }
+        logger.info("✓ {} reportable field(s) changed: {}", changes.size(), changes);
+
+        boolean identityCarriedOver = false;
+        for (String field : IDENTITY_FIELDS) {
+            JsonNode value = previous.get(field);
+            if (value != null && !value.equals(amended.get(field))) {
+                amended.set(field, value);
+                identityCarriedOver = true;
+            }
+        }
+        return Optional.of(identityCarriedOver
+                ? rosettaMapper.treeToValue(amended, CFTCPart45TransactionReport.class)
+                : amendedReport);
+    }
+
+    /**
+     * Self-check on a trade file: the trade with a reset recorded (a TradeState change that is not reported),
+     * amended in a later run, must not produce a modification report against the trade's new-trade report.
+     * Exits with status 1 when it does.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ReportDiffEngine <trade-state.json>");
+            System.exit(1);
+        }
+        DrrReportingRuntime runtime = DrrReportingRuntime.get();
+        CFTCNewTradeAndTerminationReports pipeline = runtime.getInstance(CFTCNewTradeAndTerminationReports.class);
+        TradeState previous = CdmObjectCache.shared().load(args[0], TradeState.class, true);
+        CFTCPart45TransactionReport previousReport = runtime.generateCftcPart45Report(
+                pipeline.createNewTradeReportableEvents(previous).get(0));
+
+        Date resetDate = previous.getTrade().getTradeDate() != null
+                ? previous.getTrade().getTradeDate()
+                : Date.of(LocalDate.now(ZoneOffset.UTC));
+        TradeState amended = previous.toBuilder()
+                .addResetHistory(Reset.builder()
+                        .setResetDate(resetDate)
+                        .setResetValue(Price.builder().setValue(BigDecimal.ZERO)))
+                .build();
+
+        Optional<CFTCPart45TransactionReport> modification = new ReportDiffEngine().modificationReport(previousReport, previous, amended);
+        if (modification.isPresent()) {
+            System.err.println("✗ Non-reportable amendment produced a modification report");
+            System.exit(1);
+        }
+        System.out.println("✓ Non-reportable amendment produced no modification report");
+    }
+
+    /**
+     * Names of the changed top-level report fields, e.g. for logging or routing.
+     */
+    public static Set<String> changedFields(List<FieldChange> changes) {
+        Set<String> fields = new TreeSet<>();
+        for (FieldChange change : changes) {
+            fields.add(change.getPath().split("[.\\[]")[0]);
+        }
+        return fields;
+    }
+}
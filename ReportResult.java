@@ -0,0 +1,58 @@
+package com.regnosys.drr.examples;
+
+import drr.regulation.cftc.rewrite.CFTCPart45TransactionReport;
+import drr.regulation.common.ReportableEvent;
+
+/**
+ * Outcome of generating the report for one item of a batch: either the report or the failure.
+ */
+public final class ReportResult {
+
+    private final int index;
+    private final ReportableEvent reportableEvent;
+    private final CFTCPart45TransactionReport report;
+    private final Exception error;
+
+    private ReportResult(int index, ReportableEvent reportableEvent, CFTCPart45TransactionReport report, Exception error) {
+        this.index = index;
+        this.reportableEvent = reportableEvent;
+        this.report = report;
+        this.error = error;
+    }
+
+    static ReportResult success(int index, ReportableEvent reportableEvent, CFTCPart45TransactionReport report) {
+        return new ReportResult(index, reportableEvent, report, null);
+    }
+
+    static ReportResult failure(int index, ReportableEvent reportableEvent, Exception error) {
+        return new ReportResult(index, reportableEvent, null, error);
+    }
+
+    /**
+     * Position of the item in the input batch.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public ReportableEvent getReportableEvent() {
+        return reportableEvent;
+    }
+
+    public CFTCPart45TransactionReport getReport() {
+        return report;
+    }
+
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportResult{index=" + index + (isSuccess() ? ", success" : ", error=" + error) + "}";
+    }
+}
@@ -0,0 +1,121 @@
+package com.regnosys.drr.examples;
+
+import cdm.base.staticdata.party.CounterpartyRoleEnum;
+import cdm.base.staticdata.party.metafields.ReferenceWithMetaParty;
+import com.google.inject.Injector;
+import drr.enrichment.common.trade.functions.Create_TransactionReportInstruction;
+import drr.regulation.cftc.rewrite.CFTCPart45TransactionReport;
+import drr.regulation.cftc.rewrite.reports.CFTCPart45ReportFunction;
+import drr.regulation.common.ReportableEvent;
+import drr.regulation.common.ReportingSide;
+import drr.regulation.common.TransactionReportInstruction;
+import drr.regulation.common.functions.ExtractTradeCounterparty;
+
+/**
+ * One worker's own set of the DRR functions needed to turn a ReportableEvent into a CFTC Part 45 report.
+ *
+ * Each bundle gets fresh instances from the injector, so a worker never shares a function instance with
+ * another thread - safe even if a function keeps internal state. A bundle must only be used by one thread
+ * at a time.
+ */
+public final class ReportingFunctions {
+
+    private final Create_TransactionReportInstruction createTransactionReportInstruction;
+    private final CFTCPart45ReportFunction cftcPart45ReportFunction;
+    private final ExtractTradeCounterparty extractTradeCounterparty;
+
+    ReportingFunctions(Injector injector) {
+        this(injector.getInstance(Create_TransactionReportInstruction.class),
+                injector.getInstance(CFTCPart45ReportFunction.class),
+                injector.getInstance(ExtractTradeCounterparty.class));
+    }
+
+    ReportingFunctions(Create_TransactionReportInstruction createTransactionReportInstruction,
+                       CFTCPart45ReportFunction cftcPart45ReportFunction,
+                       ExtractTradeCounterparty extractTradeCounterparty) {
+        this.createTransactionReportInstruction = createTransactionReportInstruction;
+        this.cftcPart45ReportFunction = cftcPart45ReportFunction;
+        this.extractTradeCounterparty = extractTradeCounterparty;
+    }
+
+    /**
+     * Reporting side with PARTY_1 as the reporting party and PARTY_2 as the reporting counterparty.
+     */
+    public ReportingSide defaultReportingSide(ReportableEvent reportableEvent) {
+        return ReportingSide.builder()
+                .setReportingParty(getCounterparty(reportableEvent, CounterpartyRoleEnum.PARTY_1))
+                .setReportingCounterparty(getCounterparty(reportableEvent, CounterpartyRoleEnum.PARTY_2))
+                .build();
+    }
+
+    public ReferenceWithMetaParty getCounterparty(ReportableEvent reportableEvent, CounterpartyRoleEnum party) {
+        return extractTradeCounterparty.evaluate(reportableEvent, party).getPartyReference();
+    }
+
+    public TransactionReportInstruction createInstruction(ReportableEvent reportableEvent, ReportingSide reportingSide) {
+        return createTransactionReportInstruction.evaluate(reportableEvent, reportingSide);
+    }
+
+    public CFTCPart45TransactionReport generateCftcPart45Report(TransactionReportInstruction reportInstruction) {
+        return cftcPart45ReportFunction.evaluate(reportInstruction);
+    }
+
+    public CFTCPart45TransactionReport generateCftcPart45Report(ReportableEvent reportableEvent, ReportingSide reportingSide) {
+        return generateCftcPart45Report(createInstruction(reportableEvent, reportingSide));
+    }
+
+    public CFTCPart45TransactionReport generateCftcPart45Report(ReportableEvent reportableEvent) {
+        return generateCftcPart45Report(reportableEvent, defaultReportingSide(reportableEvent));
+    }
+
+    /**
+     * CFTC Part 45 reports from both sides of the trade in one call: PARTY_1 reporting against PARTY_2, and
+     * PARTY_2 reporting against PARTY_1.
+     *
+     * The side-independent work - workflow step, Create_ReportableEvents and enrichment - is already done once
+     * in the reportable event both sides share. Create_TransactionReportInstruction and the report function
+     * run per side, each with its own ReportingSide, so side-dependent enrichment done by the instruction
+     * function is never carried over from the other side.
+     */
+    public DualSidedReports generateDualSidedReports(ReportableEvent reportableEvent) {
+        return generateDualSidedReports(reportableEvent, defaultReportingSide(reportableEvent));
+    }
+
+    public DualSidedReports generateDualSidedReports(ReportableEvent reportableEvent, ReportingSide reportingSide) {
+        return new DualSidedReports(
+                generateCftcPart45Report(reportableEvent, reportingSide),
+                generateCftcPart45Report(reportableEvent, otherSide(reportingSide)));
+    }
+
+    /**
+     * The other side's ReportingSide, built from the two counterparties only: delegated reporting and other
+     * side-specific fields of the given side do not apply to the other side.
+     */
+    static ReportingSide otherSide(ReportingSide reportingSide) {
+        return ReportingSide.builder()
+                .setReportingParty(reportingSide.getReportingCounterparty())
+                .setReportingCounterparty(reportingSide.getReportingParty())
+                .build();
+    }
+
+    /**
+     * The reports of the given reporting side and of the other side.
+     */
+    public static final class DualSidedReports {
+        private final CFTCPart45TransactionReport reportingSideReport;
+        private final CFTCPart45TransactionReport otherSideReport;
+
+        DualSidedReports(CFTCPart45TransactionReport reportingSideReport, CFTCPart45TransactionReport otherSideReport) {
+            this.reportingSideReport = reportingSideReport;
+            this.otherSideReport = otherSideReport;
+        }
+
+        public CFTCPart45TransactionReport getReportingSideReport() {
+            return reportingSideReport;
+        }
+
+        public CFTCPart45TransactionReport getOtherSideReport() {
+            return otherSideReport;
+        }
+    }
+}
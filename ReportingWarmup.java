@@ -0,0 +1,190 @@
+package com.regnosys.drr.examples;
+
+import cdm.event.common.TradeState;
+import com.regnosys.drr.examples.util.CdmObjectCache;
+import drr.regulation.common.ReportableEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * JIT warm-up stage run before a reporting process accepts work.
+ *
+ * Bundled IRS trades are pushed through the full pipeline - Create_AcceptedWorkflowStepFromInstruction,
+ * post-processing, Create_ReportableEvents, enrichment and the CFTC Part 45 report - in rounds, until the
+ * JIT compiler stops doing significant work: the total compilation time grows by less than settleMillis for
+ * settleRounds consecutive rounds. Readiness is only reported after that (or after maxRounds / maxSeconds).
+ *
+ * Configuration (system properties):
+ * - drr.warmup.trades        comma separated trade files (default: the bundled IRS examples)
+ * - drr.warmup.minRounds     rounds always run (default 5)
+ * - drr.warmup.maxRounds     upper bound on rounds (default 200)
+ * - drr.warmup.maxSeconds    upper bound on warm-up time (default 60)
+ * - drr.warmup.settleRounds  consecutive quiet rounds required (default 3)
+ * - drr.warmup.settleMillis  compilation time per round regarded as quiet (default 5)
+ */
+public class ReportingWarmup {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportingWarmup.class);
+
+    static final List<String> DEFAULT_TRADES = Arrays.asList(
+            "result-json-files/fpml-5-10/record-keeping/products/rates/IR-IRS-Fixed-Float-ex01.json",
+            "result-json-files/fpml-5-10/products/rates/USD-Vanilla-swap.json");
+
+    private final List<String> tradePaths;
+    private final int minRounds;
+    private final int maxRounds;
+    private final long maxSeconds;
+    private final int settleRounds;
+    private final long settleMillis;
+
+    private final CountDownLatch readyLatch = new CountDownLatch(1);
+    private volatile boolean ready;
+    private volatile Throwable failure;
+    private volatile int roundsRun;
+
+    public ReportingWarmup(List<String> tradePaths, int minRounds, int maxRounds, long maxSeconds, int settleRounds, long settleMillis) {
+        if (tradePaths.isEmpty()) {
+            throw new IllegalArgumentException("At least one warm-up trade is required");
+        }
+        this.tradePaths = tradePaths;
+        this.minRounds = minRounds;
+        this.maxRounds = maxRounds;
+        this.maxSeconds = maxSeconds;
+        this.settleRounds = settleRounds;
+        this.settleMillis = settleMillis;
+    }
+
+    public static ReportingWarmup fromSystemProperties() {
+        String trades = System.getProperty("drr.warmup.trades");
+        List<String> tradePaths = trades == null ? DEFAULT_TRADES : Arrays.stream(trades.split(","))
+                .map(String::trim)
+                .filter(path -> !path.isEmpty())
+                .collect(Collectors.toList());
+        return new ReportingWarmup(tradePaths,
+                Integer.getInteger("drr.warmup.minRounds", 5),
+                Integer.getInteger("drr.warmup.maxRounds", 200),
+                Long.getLong("drr.warmup.maxSeconds", 60),
+                Integer.getInteger("drr.warmup.settleRounds", 3),
+                Long.getLong("drr.warmup.settleMillis", 5));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Wait for the warm-up to finish.
+     *
+     * @return true once the process is ready, false if the timeout elapsed first
+     * @throws IllegalStateException if the warm-up failed
+     */
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!readyLatch.await(timeout, unit)) {
+            return false;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("JIT warm-up failed", failure);
+        }
+        return true;
+    }
+
+    public int getRoundsRun() {
+        return roundsRun;
+    }
+
+    /**
+     * Run the warm-up on the calling thread and mark the process ready when it completes. Waiters are released
+     * either way; if the warm-up fails, {@link #awaitReady(long, TimeUnit)} rethrows the failure.
+     */
+    public void run() throws IOException {
+        try {
+            warmUp();
+        } catch (IOException | RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            readyLatch.countDown();
+        }
+    }
+
+    private void warmUp() throws IOException {
+        long start = System.currentTimeMillis();
+        logger.info("=== JIT warm-up started with {} trade(s) ===", tradePaths.size());
+
+        DrrReportingRuntime runtime = DrrReportingRuntime.get();
+        CFTCNewTradeAndTerminationReports pipeline = runtime.getInstance(CFTCNewTradeAndTerminationReports.class);
+        List<TradeState> trades = new ArrayList<>(tradePaths.size());
+        for (String tradePath : tradePaths) {
+            trades.add(CdmObjectCache.shared().load(tradePath, TradeState.class, true));
+        }
+
+        CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+        boolean compilationTimeSupported = compilation != null && compilation.isCompilationTimeMonitoringSupported();
+        if (!compilationTimeSupported) {
+            logger.warn("⚠ JIT compilation time not available - warming up for {} rounds", minRounds);
+        }
+
+        long deadline = start + TimeUnit.SECONDS.toMillis(maxSeconds);
+        long lastCompilationMillis = compilationTimeSupported ? compilation.getTotalCompilationTime() : 0;
+        int quietRounds = 0;
+        int reports = 0;
+        int failures = 0;
+        int round = 0;
+
+        while (round < maxRounds && System.currentTimeMillis() < deadline) {
+            round++;
+            for (TradeState trade : trades) {
+                try {
+                    reports += runPipeline(runtime, pipeline.createNewTradeReportableEvents(trade));
+                    reports += runPipeline(runtime, pipeline.createTerminationReportableEvents(trade));
+                } catch (RuntimeException e) {
+                    failures++;
+                    if (round == 1) {
+                        logger.warn("⚠ Warm-up trade failed: {}", e.getMessage());
+                    }
+                }
+            }
+            roundsRun = round;
+
+            if (!compilationTimeSupported) {
+                if (round >= minRounds) {
+                    break;
+                }
+                continue;
+            }
+            long compilationMillis = compilation.getTotalCompilationTime();
+            quietRounds = compilationMillis - lastCompilationMillis < settleMillis ? quietRounds + 1 : 0;
+            lastCompilationMillis = compilationMillis;
+            if (round >= minRounds && quietRounds >= settleRounds) {
+                break;
+            }
+        }
+
+        if (reports == 0) {
+            throw new IllegalStateException("JIT warm-up produced no reports (" + failures + " failure(s)) - check the warm-up trades");
+        }
+
+        ready = true;
+        logger.info("✓ JIT warm-up completed: {} round(s), {} report(s), {} failure(s), compilation {}, {}ms - READY",
+                round, reports, failures,
+                compilationTimeSupported ? (quietRounds >= settleRounds ? "settled" : "not settled") : "unmonitored",
+                System.currentTimeMillis() - start);
+    }
+
+    private static int runPipeline(DrrReportingRuntime runtime, List<ReportableEvent> reportableEvents) {
+        for (ReportableEvent reportableEvent : reportableEvents) {
+            runtime.generateCftcPart45Report(reportableEvent);
+        }
+        return reportableEvents.size();
+    }
+}
@@ -0,0 +1,343 @@
+package com.regnosys.drr.examples.util;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.regnosys.rosetta.common.serialisation.RosettaObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of the reporting pipeline: for every input event it records the pipeline stage reached and,
+ * once the report has been emitted, the hash of the report.
+ *
+ * Appends are buffered and made durable in groups - one fsync per batchSize records or per maxDelayMillis,
+ * whichever comes first, or on an explicit {@link #sync()} - so logging does not cost an fsync per report.
+ * The delay is enforced by a background flusher, so records are synced on time even when no further record
+ * arrives.
+ * On restart the log is replayed from the last checkpoint and {@link #isEmitted(String)} lets the pipeline
+ * suppress outputs that were already emitted. A rerun of the same input is only idempotent if the pipeline
+ * regenerates the same report - ids and timestamps derived from the input, not from the run - which it can
+ * check against {@link #emittedReportHash(String)}.
+ *
+ * Emission protocol: write the report to its sink, then record EMITTED. Every group sync first flushes the
+ * output barrier given to {@link #open(Path, int, long, OutputBarrier)} (the report sink), so the log never
+ * records a report as emitted before the report itself is durable. A crash between the sink sync and the log
+ * sync can re-emit the reports of that last batch only, with the same report hash, so a downstream consumer
+ * can drop them by hash.
+ *
+ * The emission guarantee is only as strong as the output barrier: with reports on stdout it is a flush of the
+ * stream, not an fsync, and a crash can lose reports the log already records as emitted.
+ *
+ * Files: wal.log (records since the last checkpoint) and wal.checkpoint (last stage of every event at the
+ * checkpoint). A checkpoint compacts the state: events not updated for retentionMillis are dropped, so a rerun
+ * of such an input after the retention period is reported again. Record layout: [int payload length]
+ * [int CRC32][payload "eventId\tstage\treportHash\tupdatedMillis"].
+ */
+public final class ReportingWriteAheadLog implements AutoCloseable {
+
+    public enum Stage {
+        RECEIVED, EVENTS_CREATED, EMITTED
+    }
+
+    /**
+     * Makes the pipeline's output durable; flushed before each log sync.
+     */
+    @FunctionalInterface
+    public interface OutputBarrier {
+        void flush() throws IOException;
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportingWriteAheadLog.class);
+    private static final String LOG_FILE = "wal.log";
+    private static final String CHECKPOINT_FILE = "wal.checkpoint";
+    private static final ObjectWriter compactWriter = RosettaObjectMapper.getNewRosettaObjectMapper().writer();
+
+    /** Last known stage and report hash per event id. */
+    private static final class EventState {
+        final Stage stage;
+        final String reportHash;
+        final long updatedMillis;
+
+        EventState(Stage stage, String reportHash, long updatedMillis) {
+            this.stage = stage;
+            this.reportHash = reportHash;
+            this.updatedMillis = updatedMillis;
+        }
+    }
+
+    private final Path directory;
+    private final int batchSize;
+    private final long maxDelayMillis;
+    private final long retentionMillis;
+    private final OutputBarrier outputBarrier;
+    private final ScheduledExecutorService flusher;
+    private final Map<String, EventState> events = new ConcurrentHashMap<>();
+
+    private FileChannel log;
+    private final List<ByteBuffer> pending = new ArrayList<>();
+    private long oldestPendingMillis;
+    private long recordsSinceCheckpoint;
+
+    private ReportingWriteAheadLog(Path directory, int batchSize, long maxDelayMillis, long retentionMillis, OutputBarrier outputBarrier) {
+        this.directory = directory;
+        this.batchSize = batchSize;
+        this.maxDelayMillis = maxDelayMillis;
+        this.retentionMillis = retentionMillis;
+        this.outputBarrier = outputBarrier;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "drr-wal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open (or create) the log in the directory and replay it. Events are kept until the process ends.
+     */
+    public static ReportingWriteAheadLog open(Path directory, int batchSize, long maxDelayMillis) throws IOException {
+        return open(directory, batchSize, maxDelayMillis, () -> { });
+    }
+
+    public static ReportingWriteAheadLog open(Path directory, int batchSize, long maxDelayMillis, OutputBarrier outputBarrier) throws IOException {
+        return open(directory, batchSize, maxDelayMillis, Long.MAX_VALUE, outputBarrier);
+    }
+
+    /**
+     * @param retentionMillis how long an event is kept after its last update; compacted away at the next checkpoint
+     */
+    public static ReportingWriteAheadLog open(Path directory, int batchSize, long maxDelayMillis, long retentionMillis,
+                                              OutputBarrier outputBarrier) throws IOException {
+        Files.createDirectories(directory);
+        ReportingWriteAheadLog wal = new ReportingWriteAheadLog(directory, batchSize, maxDelayMillis, retentionMillis, outputBarrier);
+        wal.replay();
+        long period = Math.max(1, maxDelayMillis);
+        wal.flusher.scheduleWithFixedDelay(wal::syncIfDue, period, period, TimeUnit.MILLISECONDS);
+        return wal;
+    }
+
+    private void replay() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpoint)) {
+            readRecords(ByteBuffer.wrap(Files.readAllBytes(checkpoint)));
+            recordsSinceCheckpoint = 0;
+        }
+        log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = log.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Write-ahead log too large to replay (" + size + " bytes) - checkpoint more often");
+        }
+        // Read through the channel, not a mapping, so the file can be truncated below
+        ByteBuffer records = ByteBuffer.allocate((int) size);
+        while (records.hasRemaining()) {
+            if (log.read(records, records.position()) < 0) {
+                break;
+            }
+        }
+        records.flip();
+        long validLength = readRecords(records);
+        // Drop a torn record at the tail left by a crash mid-append
+        log.truncate(validLength);
+        log.position(validLength);
+    }
+
+    /**
+     * Apply every intact record of the buffer.
+     *
+     * @return the length of the intact prefix
+     */
+    private long readRecords(ByteBuffer buffer) {
+        while (buffer.remaining() >= 2 * Integer.BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                return start;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (crc32(payload) != crc) {
+                return start;
+            }
+            String[] fields = new String(payload, StandardCharsets.UTF_8).split("\t", -1);
+            // Records without a timestamp count as updated at replay
+            long updatedMillis = fields.length > 3 ? Long.parseLong(fields[3]) : System.currentTimeMillis();
+            events.put(fields[0], new EventState(Stage.valueOf(fields[1]), fields[2].isEmpty() ? null : fields[2], updatedMillis));
+            recordsSinceCheckpoint++;
+        }
+        return buffer.position();
+    }
+
+    private static int crc32(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer encode(String eventId, EventState state) {
+        byte[] payload = (eventId + "\t" + state.stage + "\t" + (state.reportHash == null ? "" : state.reportHash)
+                + "\t" + state.updatedMillis).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(2 * Integer.BYTES + payload.length);
+        record.putInt(payload.length).putInt(crc32(payload)).put(payload).flip();
+        return record;
+    }
+
+    /**
+     * Record that the event reached a stage. Durable after the next group sync.
+     */
+    public void record(String eventId, Stage stage) throws IOException {
+        record(eventId, stage, null);
+    }
+
+    public synchronized void record(String eventId, Stage stage, String reportHash) throws IOException {
+        if (eventId.indexOf('\t') >= 0) {
+            throw new IllegalArgumentException("Event id must not contain tabs: " + eventId);
+        }
+        long now = System.currentTimeMillis();
+        EventState state = new EventState(stage, reportHash, now);
+        events.put(eventId, state);
+        if (pending.isEmpty()) {
+            oldestPendingMillis = now;
+        }
+        pending.add(encode(eventId, state));
+        if (pending.size() >= batchSize || now - oldestPendingMillis >= maxDelayMillis) {
+            sync();
+        }
+    }
+
+    /**
+     * Background flusher: sync once the oldest pending record has waited maxDelayMillis.
+     */
+    private synchronized void syncIfDue() {
+        if (pending.isEmpty() || System.currentTimeMillis() - oldestPendingMillis < maxDelayMillis || !log.isOpen()) {
+            return;
+        }
+        try {
+            sync();
+        } catch (IOException e) {
+            logger.error("Write-ahead log sync failed - retrying on the next record or flush", e);
+        }
+    }
+
+    /**
+     * Record an emitted report with its content hash.
+     */
+    public void recordEmitted(String eventId, Object report) throws IOException {
+        record(eventId, Stage.EMITTED, reportHash(report));
+    }
+
+    /**
+     * Flush the output barrier, then write and fsync all pending records as one group.
+     */
+    public synchronized void sync() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        outputBarrier.flush();
+        ByteBuffer[] batch = pending.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer record : batch) {
+            remaining += record.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= log.write(batch);
+        }
+        log.force(false);
+        recordsSinceCheckpoint += pending.size();
+        pending.clear();
+    }
+
+    /**
+     * Whether a report for the event was durably (or, before the next sync, at least locally) emitted.
+     */
+    public boolean isEmitted(String eventId) {
+        EventState state = events.get(eventId);
+        return state != null && state.stage == Stage.EMITTED;
+    }
+
+    /**
+     * The last recorded stage of the event, or null if it was never seen.
+     */
+    public Stage lastStage(String eventId) {
+        EventState state = events.get(eventId);
+        return state == null ? null : state.stage;
+    }
+
+    public String emittedReportHash(String eventId) {
+        EventState state = events.get(eventId);
+        return state == null ? null : state.reportHash;
+    }
+
+    public long getRecordsSinceCheckpoint() {
+        return recordsSinceCheckpoint;
+    }
+
+    /**
+     * Drop events not updated within the retention period, write the state of every remaining event to the
+     * checkpoint file and start an empty log, so the next replay only reads records written after this point.
+     */
+    public synchronized void checkpoint() throws IOException {
+        sync();
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        int expired = 0;
+        for (Map.Entry<String, EventState> event : events.entrySet()) {
+            if (retentionMillis != Long.MAX_VALUE && event.getValue().updatedMillis < cutoff) {
+                events.remove(event.getKey(), event.getValue());
+                expired++;
+            }
+        }
+        Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, EventState> event : events.entrySet()) {
+                ByteBuffer record = encode(event.getKey(), event.getValue());
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.truncate(0);
+        log.position(0);
+        log.force(true);
+        recordsSinceCheckpoint = 0;
+        logger.info("Write-ahead log checkpoint: {} event(s) kept, {} expired", events.size(), expired);
+    }
+
+    /**
+     * SHA-256 (Base64) of the compact JSON form of the report.
+     */
+    public static String reportHash(Object report) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(compactWriter.writeValueAsBytes(report)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flusher.shutdown();
+        sync();
+        log.close();
+    }
+}
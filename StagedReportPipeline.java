@@ -0,0 +1,328 @@
+package com.regnosys.drr.examples;
+
+import cdm.event.common.TradeState;
+import cdm.event.workflow.WorkflowStep;
+import com.regnosys.drr.examples.util.CdmDocumentLoader;
+import drr.regulation.cftc.rewrite.CFTCPart45TransactionReport;
+import drr.regulation.common.ReportableEvent;
+import drr.regulation.common.TransactionReportInstruction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * NEW TRADE reporting as a staged pipeline:
+ * load -> instruction -> workflow step -> reportable events -> report instruction -> report -> sink.
+ * The sink stage emits through the shared runtime (see DrrReportingRuntime#emitReport), so reports go to the
+ * NDJSON report sink when -Ddrr.sink.dir is set.
+ *
+ * Stages hand work over through bounded ArrayBlockingQueues and each stage has its own worker count, so a
+ * slow stage (typically the sink) only holds up its own workers. When a queue is full the
+ * upstream stage blocks on put, and backpressure propagates back to the loader. Every worker builds its own
+ * stage function, so DRR function instances are never shared between threads. Resent trades are dropped
+ * by the instruction stage before any id is generated or DRR function runs (see DuplicateEventFilter).
+ *
+ * Worker counts are set per stage with -Ddrr.pipeline.workers.<stage>=<n> (stage names as above), queue
+ * capacity with -Ddrr.pipeline.queueCapacity and periodic metrics logging with -Ddrr.pipeline.metricsSeconds.
+ */
+public class StagedReportPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(StagedReportPipeline.class);
+
+    /**
+     * Processes one work item, returning zero or more items for the next stage.
+     */
+    @FunctionalInterface
+    interface StageFunction {
+        List<WorkItem> apply(WorkItem item) throws Exception;
+    }
+
+    /**
+     * The state of one trade (and, after fan-out, one reportable event) as it moves through the stages.
+     */
+    static final class WorkItem {
+        final Path source;
+        TradeState tradeState;
+        WorkflowStep instruction;
+        WorkflowStep workflowStep;
+        ReportableEvent reportableEvent;
+        int eventIndex;
+        TransactionReportInstruction reportInstruction;
+        CFTCPart45TransactionReport report;
+
+        WorkItem(Path source) {
+            this.source = source;
+        }
+
+        WorkItem forEvent(ReportableEvent event, int index) {
+            WorkItem item = new WorkItem(source);
+            item.tradeState = tradeState;
+            item.reportableEvent = event;
+            item.eventIndex = index;
+            return item;
+        }
+    }
+
+    private static final WorkItem END_OF_STREAM = new WorkItem(null);
+
+    /**
+     * One stage: its input queue, workers and metrics.
+     */
+    static final class Stage {
+        final String name;
+        final int workers;
+        final BlockingQueue<WorkItem> input;
+        final Supplier<StageFunction> functionFactory;
+        Stage next;
+
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong busyNanos = new AtomicLong();
+        final AtomicInteger activeWorkers = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+
+        Stage(String name, int workers, int queueCapacity, Supplier<StageFunction> functionFactory) {
+            this.name = name;
+            this.workers = workers;
+            this.input = new ArrayBlockingQueue<>(queueCapacity);
+            this.functionFactory = functionFactory;
+        }
+
+        void start() {
+            activeWorkers.set(workers);
+            for (int i = 0; i < workers; i++) {
+                Thread thread = new Thread(this::work, "pipeline-" + name + "-" + i);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        private void work() {
+            try {
+                StageFunction function = createFunction();
+                while (true) {
+                    WorkItem item = input.take();
+                    if (item == END_OF_STREAM) {
+                        // Let the other workers of this stage see the end too
+                        input.put(END_OF_STREAM);
+                        break;
+                    }
+                    long start = System.nanoTime();
+                    List<WorkItem> results;
+                    try {
+                        results = function.apply(item);
+                        processed.incrementAndGet();
+                    } catch (Throwable e) {
+                        failed.incrementAndGet();
+                        logger.error("Stage {} failed for {}", name, item.source, e);
+                        results = Collections.emptyList();
+                    } finally {
+                        busyNanos.addAndGet(System.nanoTime() - start);
+                    }
+                    if (next != null) {
+                        for (WorkItem result : results) {
+                            // Blocks when the next stage is saturated - backpressure
+                            next.input.put(result);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // The last worker out signals the end of the stream downstream
+                if (activeWorkers.decrementAndGet() == 0 && next != null) {
+                    try {
+                        next.input.put(END_OF_STREAM);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        /**
+         * The worker's stage function. If it cannot be built the worker keeps draining its queue, failing every
+         * item it takes, so the stream still reaches its end instead of stalling upstream on a full queue.
+         */
+        private StageFunction createFunction() {
+            try {
+                return functionFactory.get();
+            } catch (Throwable e) {
+                logger.error("Stage {} worker {} could not be initialised", name, Thread.currentThread().getName(), e);
+                return item -> {
+                    throw new IllegalStateException("Stage " + name + " worker not initialised", e);
+                };
+            }
+        }
+
+        void join() throws InterruptedException {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        /**
+         * Share of the stage's worker time spent processing since the given start time.
+         */
+        double utilization(long runStartNanos) {
+            long available = (System.nanoTime() - runStartNanos) * workers;
+            return available <= 0 ? 0 : (double) busyNanos.get() / available;
+        }
+    }
+
+    private final List<Stage> stages = new ArrayList<>();
+    private long runStartNanos;
+
+    public StagedReportPipeline() {
+        DrrReportingRuntime runtime = DrrReportingRuntime.get();
+        int queueCapacity = Integer.getInteger("drr.pipeline.queueCapacity", 64);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        addStage("load", 2, queueCapacity, () -> item -> {
+            item.tradeState = CdmDocumentLoader.loadTradeState(item.source.toString());
+            return Collections.singletonList(item);
+        });
+        addStage("instruction", 1, queueCapacity, () -> {
+            CFTCNewTradeAndTerminationReports pipeline = runtime.getInstance(CFTCNewTradeAndTerminationReports.class);
+            return item -> {
+                if (!pipeline.isFirstOccurrence(item.tradeState, "NEW_TRADE")) {
+                    return Collections.emptyList();
+                }
+                item.instruction = pipeline.getEnhancedNewTradeInstruction(item.tradeState);
+                return Collections.singletonList(item);
+            };
+        });
+        addStage("workflow", Math.max(1, cores / 2), queueCapacity, () -> {
+            CFTCNewTradeAndTerminationReports pipeline = runtime.getInstance(CFTCNewTradeAndTerminationReports.class);
+            return item -> {
+                item.workflowStep = pipeline.createAcceptedWorkflowStep(item.instruction);
+                return Collections.singletonList(item);
+            };
+        });
+        addStage("events", Math.max(1, cores / 2), queueCapacity, () -> {
+            CFTCNewTradeAndTerminationReports pipeline = runtime.getInstance(CFTCNewTradeAndTerminationReports.class);
+            return item -> {
+                List<ReportableEvent> events = pipeline.createEnrichedReportableEvents(item.tradeState, item.workflowStep);
+                List<WorkItem> fanOut = new ArrayList<>(events.size());
+                for (int i = 0; i < events.size(); i++) {
+                    fanOut.add(item.forEvent(events.get(i), i));
+                }
+                return fanOut;
+            };
+        });
+        addStage("instructions", Math.max(1, cores / 2), queueCapacity, () -> {
+            ReportingFunctions functions = new ReportingFunctions(runtime.getInjector());
+            return item -> {
+                item.reportInstruction = functions.createInstruction(item.reportableEvent, functions.defaultReportingSide(item.reportableEvent));
+                return Collections.singletonList(item);
+            };
+        });
+        addStage("report", cores, queueCapacity, () -> {
+            ReportingFunctions functions = new ReportingFunctions(runtime.getInjector());
+            return item -> {
+                item.report = functions.generateCftcPart45Report(item.reportInstruction);
+                return Collections.singletonList(item);
+            };
+        });
+        addStage("sink", 1, queueCapacity, () -> item -> {
+            runtime.emitReport(item.report);
+            return Collections.emptyList();
+        });
+    }
+
+    private void addStage(String name, int defaultWorkers, int queueCapacity, Supplier<StageFunction> functionFactory) {
+        int workers = Math.max(1, Integer.getInteger("drr.pipeline.workers." + name, defaultWorkers));
+        Stage stage = new Stage(name, workers, queueCapacity, functionFactory);
+        if (!stages.isEmpty()) {
+            stages.get(stages.size() - 1).next = stage;
+        }
+        stages.add(stage);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java StagedReportPipeline <trade-json-dir>");
+            System.err.println("  Reports go to the NDJSON report sink with -Ddrr.sink.dir=<dir>, to stdout otherwise");
+            System.exit(1);
+        }
+        List<Path> trades;
+        try (Stream<Path> files = Files.walk(Paths.get(args[0]))) {
+            trades = files.filter(p -> p.getFileName().toString().endsWith(".json")).sorted().collect(Collectors.toList());
+        }
+        new StagedReportPipeline().run(trades);
+    }
+
+    /**
+     * Feed the trades into the pipeline, wait until the sink has drained and flush the emitted reports.
+     */
+    public void run(List<Path> tradeFiles) throws InterruptedException, IOException {
+        logger.info("=== Staged pipeline: {} trade(s) ===", tradeFiles.size());
+        runStartNanos = System.nanoTime();
+        stages.forEach(Stage::start);
+
+        long metricsSeconds = Long.getLong("drr.pipeline.metricsSeconds", 0);
+        ScheduledExecutorService metricsLogger = null;
+        if (metricsSeconds > 0) {
+            metricsLogger = Executors.newSingleThreadScheduledExecutor();
+            metricsLogger.scheduleAtFixedRate(() -> logger.info("Pipeline metrics: {}", metrics()),
+                    metricsSeconds, metricsSeconds, TimeUnit.SECONDS);
+        }
+
+        try {
+            Stage first = stages.get(0);
+            for (Path tradeFile : tradeFiles) {
+                // Blocks while the load stage is saturated
+                first.input.put(new WorkItem(tradeFile));
+            }
+            first.input.put(END_OF_STREAM);
+            for (Stage stage : stages) {
+                stage.join();
+            }
+            DrrReportingRuntime.get().flushReports();
+        } finally {
+            if (metricsLogger != null) {
+                metricsLogger.shutdownNow();
+            }
+        }
+        logger.info("=== Staged pipeline completed in {}ms: {} ===",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStartNanos), metrics());
+    }
+
+    /**
+     * Per-stage queue depth, processed / failed counts and utilization, e.g.
+     * "load[q=3/64 done=120 failed=0 util=41%] ...".
+     */
+    public String metrics() {
+        StringBuilder metrics = new StringBuilder();
+        for (Stage stage : stages) {
+            if (metrics.length() > 0) {
+                metrics.append(' ');
+            }
+            metrics.append(stage.name)
+                    .append("[q=").append(stage.input.size()).append('/').append(stage.input.size() + stage.input.remainingCapacity())
+                    .append(" workers=").append(stage.workers)
+                    .append(" done=").append(stage.processed.get())
+                    .append(" failed=").append(stage.failed.get())
+                    .append(" util=").append(Math.round(stage.utilization(runStartNanos) * 100)).append("%]");
+        }
+        return metrics.toString();
+    }
+}
@@ -0,0 +1,211 @@
+package com.regnosys.drr.examples.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.regnosys.rosetta.common.serialisation.RosettaObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Targeted, lazy alternative to running ReferenceResolverProcessStep over the whole CDM object graph.
+ *
+ * One pass over the JSON document indexes every keyed node (meta.globalKey, meta.externalKey and
+ * meta.location addresses). References are then either looked up on demand, or inlined only inside the
+ * subtrees a report actually reads (see {@link #CFTC_PART45_SCOPES}). {@link #readResolved} finds the scope
+ * subtrees during the indexing pass, so only those subtrees are walked again and the resolution work follows
+ * what is reported rather than the size of the document.
+ *
+ * References outside the scopes are left unresolved (their count is logged), so the bound object can differ
+ * from one resolved by ReferenceResolverProcessStep. Callers use it as an opt-in and can compare the two.
+ */
+public final class TargetedReferenceResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(TargetedReferenceResolver.class);
+    private static final ObjectMapper rosettaMapper = RosettaObjectMapper.getNewRosettaObjectMapper();
+
+    /**
+     * Attributes whose subtrees the CFTC Part 45 report reads references from: parties and counterparties,
+     * party roles, trade identifiers (issuer references) and payouts / price quantities.
+     */
+    public static final Set<String> CFTC_PART45_SCOPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "party",
+            "partyReference",
+            "counterparty",
+            "partyRole",
+            "ancillaryParty",
+            "partyInformation",
+            "tradeIdentifier",
+            "payout",
+            "priceQuantity",
+            "tradeLot"
+    )));
+
+    private final Map<String, JsonNode> globalKeys = new HashMap<>();
+    private final Map<String, JsonNode> externalKeys = new HashMap<>();
+    private final Map<String, JsonNode> locations = new HashMap<>();
+    private final List<JsonNode> scopeRoots = new ArrayList<>();
+    private int referencesOutOfScope;
+
+    private TargetedReferenceResolver() {
+    }
+
+    /**
+     * Build the key index for a document in a single pass.
+     */
+    public static TargetedReferenceResolver index(JsonNode document) {
+        return index(document, Collections.emptySet());
+    }
+
+    /**
+     * Build the key index and, in the same pass, collect the outermost subtrees under the given scopes.
+     */
+    static TargetedReferenceResolver index(JsonNode document, Set<String> scopes) {
+        TargetedReferenceResolver resolver = new TargetedReferenceResolver();
+        resolver.indexNode(document, scopes, false);
+        return resolver;
+    }
+
+    private void indexNode(JsonNode node, Set<String> scopes, boolean inScope) {
+        if (node.isObject()) {
+            if (!inScope && !node.has("value") && isReference(node)) {
+                referencesOutOfScope++;
+            }
+            JsonNode meta = node.get("meta");
+            if (meta != null && meta.isObject()) {
+                putText(globalKeys, meta.get("globalKey"), node);
+                putText(externalKeys, meta.get("externalKey"), node);
+                JsonNode location = meta.get("location");
+                if (location != null && location.isArray()) {
+                    // Address references point at the value wrapped by the [metadata location] field
+                    JsonNode target = node.has("value") ? node.get("value") : node;
+                    location.forEach(address -> putText(locations, address.get("value"), target));
+                }
+            }
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                boolean scopeRoot = !inScope && scopes.contains(field.getKey());
+                if (scopeRoot) {
+                    scopeRoots.add(field.getValue());
+                }
+                indexNode(field.getValue(), scopes, inScope || scopeRoot);
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                indexNode(element, scopes, inScope);
+            }
+        }
+    }
+
+    private static boolean isReference(JsonNode node) {
+        return node.has("globalReference") || node.has("externalReference") || node.has("address");
+    }
+
+    private static void putText(Map<String, JsonNode> index, JsonNode key, JsonNode target) {
+        if (key != null && key.isTextual()) {
+            index.putIfAbsent(key.asText(), target);
+        }
+    }
+
+    /**
+     * On-demand lookup of the node a reference object (globalReference / externalReference / address) points at.
+     *
+     * @return the referenced node, or null if the reference is unknown in this document
+     */
+    public JsonNode lookup(JsonNode reference) {
+        JsonNode target = lookupText(globalKeys, reference.get("globalReference"));
+        if (target == null) {
+            target = lookupText(externalKeys, reference.get("externalReference"));
+        }
+        if (target == null) {
+            JsonNode address = reference.get("address");
+            if (address != null) {
+                target = lookupText(locations, address.get("value"));
+            }
+        }
+        return target;
+    }
+
+    /**
+     * On-demand lookup by global key, converted to a CDM type.
+     */
+    public <T> T lookupGlobalKey(String globalKey, Class<T> type) throws IOException {
+        JsonNode target = globalKeys.get(globalKey);
+        return target == null ? null : rosettaMapper.treeToValue(target, type);
+    }
+
+    private static JsonNode lookupText(Map<String, JsonNode> index, JsonNode key) {
+        return key != null && key.isTextual() ? index.get(key.asText()) : null;
+    }
+
+    /**
+     * Inline the referenced values of every unresolved reference found under the given attribute names.
+     * Subtrees outside the scopes are only traversed to find nested scopes, never modified.
+     *
+     * @return the number of references resolved
+     */
+    public int resolveUnder(JsonNode document, Set<String> scopes) {
+        return walk(document, scopes, false, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private int walk(JsonNode node, Set<String> scopes, boolean inScope, Set<JsonNode> inProgress) {
+        int resolved = 0;
+        if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            JsonNode target = inScope && !object.has("value") ? lookup(object) : null;
+            // Guard against reference cycles through the inlined copies
+            if (target != null && inProgress.add(target)) {
+                object.set("value", target.deepCopy());
+                resolved++;
+            } else {
+                target = null;
+            }
+            Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (!"meta".equals(field.getKey())) {
+                    resolved += walk(field.getValue(), scopes, inScope || scopes.contains(field.getKey()), inProgress);
+                }
+            }
+            if (target != null) {
+                inProgress.remove(target);
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                resolved += walk(element, scopes, inScope, inProgress);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Resolve references only under the given scopes, then bind the document to the CDM type. The document
+     * is traversed once for the index; afterwards only the scope subtrees are walked.
+     */
+    public static <T> T readResolved(JsonNode document, Class<T> type, Set<String> scopes) throws IOException {
+        TargetedReferenceResolver resolver = index(document, scopes);
+        Set<JsonNode> inProgress = Collections.newSetFromMap(new IdentityHashMap<>());
+        int resolved = 0;
+        for (JsonNode root : resolver.scopeRoots) {
+            resolved += resolver.walk(root, scopes, true, inProgress);
+        }
+        if (resolver.referencesOutOfScope > 0) {
+            logger.info("Targeted resolution: {} reference(s) resolved, {} outside the scopes left unresolved",
+                    resolved, resolver.referencesOutOfScope);
+        }
+        return rosettaMapper.treeToValue(document, type);
+    }
+}
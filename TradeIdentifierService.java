@@ -0,0 +1,142 @@
+package com.regnosys.drr.examples.util;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contention-free generator of UTIs and event ids.
+ *
+ * Identifiers are built from three parts, all base-36 upper case:
+ * - a node id (-Ddrr.identifier.nodeId, 0-1295) so several JVMs can issue ids concurrently,
+ * - the generator's start time in milliseconds, which makes ids unique across restarts,
+ * - a sequence number. Each thread takes blocks of BLOCK_SIZE numbers from one shared counter and hands
+ *   them out locally, so the shared counter is touched once per block instead of once per id.
+ *
+ * UTIs follow the CFTC structure: the full 20 character LEI of the generating entity followed by the unique
+ * suffix, at most 52 characters in total. No SecureRandom, UUID or per-call formatter is involved.
+ *
+ * {@link #utiFor(String, String)} and {@link #eventIdFor(LocalDate, String)} instead derive the suffix from a
+ * key identifying the input (25 base-36 characters of its SHA-256), so reprocessing the same input yields the
+ * same identifiers.
+ */
+public final class TradeIdentifierService {
+
+    public static final int MAX_UTI_LENGTH = 52;
+    static final int BLOCK_SIZE = 4096;
+
+    private static final DateTimeFormatter EVENT_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.ROOT);
+    private static final TradeIdentifierService SHARED = new TradeIdentifierService(
+            Integer.getInteger("drr.identifier.nodeId", 0), System.currentTimeMillis());
+
+    private final String prefix;
+    private final AtomicLong nextBlock = new AtomicLong();
+    private final ThreadLocal<long[]> threadBlock = ThreadLocal.withInitial(() -> new long[]{0, 0});
+
+    public TradeIdentifierService(int nodeId, long startMillis) {
+        if (nodeId < 0 || nodeId >= 36 * 36) {
+            throw new IllegalArgumentException("nodeId must be between 0 and 1295: " + nodeId);
+        }
+        this.prefix = (pad(Integer.toString(nodeId, 36), 2) + Long.toString(startMillis, 36)).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Process-wide generator.
+     */
+    public static TradeIdentifierService shared() {
+        return SHARED;
+    }
+
+    /**
+     * Next unique sequence number for this generator, without touching shared state for most calls.
+     */
+    long nextSequence() {
+        long[] block = threadBlock.get();
+        if (block[0] == block[1]) {
+            long start = nextBlock.getAndIncrement() * BLOCK_SIZE;
+            block[0] = start;
+            block[1] = start + BLOCK_SIZE;
+        }
+        return block[0]++;
+    }
+
+    /**
+     * Unique suffix: node id, start time and sequence number. Around 20 characters.
+     */
+    public String nextSuffix() {
+        return prefix + pad(Long.toString(nextSequence(), 36), 8).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * New UTI for the given LEI: the LEI followed by a unique suffix.
+     */
+    public String newUti(String lei) {
+        if (lei == null || lei.length() != 20) {
+            throw new IllegalArgumentException("A 20 character LEI is required to generate a UTI: " + lei);
+        }
+        String uti = lei.toUpperCase(Locale.ROOT) + nextSuffix();
+        if (uti.length() > MAX_UTI_LENGTH) {
+            throw new IllegalStateException("Generated UTI exceeds " + MAX_UTI_LENGTH + " characters: " + uti);
+        }
+        return uti;
+    }
+
+    /**
+     * UTI derived from the input key: the LEI followed by a suffix hashed from the key.
+     */
+    public String utiFor(String lei, String key) {
+        if (lei == null || lei.length() != 20) {
+            throw new IllegalArgumentException("A 20 character LEI is required to generate a UTI: " + lei);
+        }
+        return lei.toUpperCase(Locale.ROOT) + keySuffix(key);
+    }
+
+    /**
+     * Event id derived from the input key, e.g. 20240115-1Z0K7V3Q9M2XH4A8C6E5R0T1Y.
+     */
+    public String eventIdFor(LocalDate eventDate, String key) {
+        return EVENT_DATE_FORMAT.format(eventDate) + "-" + keySuffix(key);
+    }
+
+    /**
+     * First 128 bits of the SHA-256 of the key, base 36, 25 characters.
+     */
+    private static String keySuffix(String key) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        return pad(new BigInteger(1, Arrays.copyOf(digest, 16)).toString(36), 25).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * New event id, e.g. 20240115-00LR8K2Q1C00000001.
+     */
+    public String newEventId(LocalDate eventDate) {
+        return EVENT_DATE_FORMAT.format(eventDate) + "-" + nextSuffix();
+    }
+
+    public String newEventId() {
+        return newEventId(LocalDate.now(ZoneOffset.UTC));
+    }
+
+    private static String pad(String value, int length) {
+        if (value.length() >= length) {
+            return value;
+        }
+        StringBuilder padded = new StringBuilder(length);
+        for (int i = value.length(); i < length; i++) {
+            padded.append('0');
+        }
+        return padded.append(value).toString();
+    }
+}
@@ -0,0 +1,366 @@
+package com.regnosys.drr.examples.util;
+
+import cdm.event.common.TradeIdentifier;
+import cdm.event.common.TradeState;
+import cdm.base.staticdata.identifier.TradeIdentifierTypeEnum;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Embedded store of TradeStates keyed by UTI and version, so lifecycle events can look up the prior state
+ * of a trade instead of re-reading the original trade file.
+ *
+ * Two tiers:
+ * - hot: the most recently cached states - written, or read from the log - on-heap in a ConcurrentHashMap,
+ *   bounded and evicted in FIFO order of caching (a hot hit does not refresh a state),
+ * - cold: every state, appended to segment log files as Smile snapshots (see {@link CdmSnapshotStore}) and
+ *   read back through memory mappings. An in-memory offset index maps (UTI, version) to segment and offset
+ *   and is rebuilt by scanning the segments when the store is opened.
+ *
+ * Record layout: [int record length][short UTI length][UTI bytes][int version][snapshot bytes].
+ * The log is the source of truth; the hot tier is a cache and eviction never loses data.
+ */
+public final class TradeStateStore implements AutoCloseable {
+
+    static final long DEFAULT_SEGMENT_SIZE = 256L * 1024 * 1024;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int hotCapacity;
+    private final long segmentSize;
+
+    private final Map<VersionKey, TradeState> hot = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<VersionKey> hotOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger hotSize = new AtomicInteger();
+
+    private final Map<VersionKey, Long> index = new ConcurrentHashMap<>();
+    private final Map<String, Integer> latestVersions = new ConcurrentHashMap<>();
+    private final Map<Integer, MappedByteBuffer> sealedSegments = new ConcurrentHashMap<>();
+
+    private int activeSegmentId;
+    private FileChannel activeSegment;
+    private long activeSize;
+
+    private TradeStateStore(Path directory, int hotCapacity, long segmentSize) {
+        this.directory = directory;
+        this.hotCapacity = hotCapacity;
+        this.segmentSize = segmentSize;
+    }
+
+    public static TradeStateStore open(Path directory, int hotCapacity) throws IOException {
+        return open(directory, hotCapacity, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public static TradeStateStore open(Path directory, int hotCapacity, long segmentSize) throws IOException {
+        Files.createDirectories(directory);
+        TradeStateStore store = new TradeStateStore(directory, hotCapacity, segmentSize);
+        store.recover();
+        return store;
+    }
+
+    private void recover() throws IOException {
+        List<Integer> segmentIds;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentIds = files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (int i = 0; i < segmentIds.size(); i++) {
+            int segmentId = segmentIds.get(i);
+            boolean last = i == segmentIds.size() - 1;
+            try (FileChannel channel = FileChannel.open(segmentPath(segmentId), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long validLength = indexSegment(segmentId, channel);
+                if (last && validLength < channel.size()) {
+                    // Torn write at the tail of the last segment - drop it before the segment is appended to
+                    channel.truncate(validLength);
+                }
+            }
+            // The last segment becomes the active one and is read through its channel; sealed segments are
+            // mapped only now, after any truncation. Bytes past the last valid record of a sealed segment are
+            // never indexed, so never read.
+            if (!last) {
+                sealedSegments.put(segmentId, MappedJsonInput.map(segmentPath(segmentId)));
+            }
+        }
+        activeSegmentId = segmentIds.isEmpty() ? 1 : segmentIds.get(segmentIds.size() - 1);
+        openActiveSegment();
+    }
+
+    /**
+     * Index the records of a segment.
+     *
+     * @return the length of the segment up to the end of its last complete record
+     */
+    private long indexSegment(int segmentId, FileChannel segment) throws IOException {
+        long size = segment.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Short.BYTES);
+        while (size - position >= header.capacity()) {
+            header.clear();
+            readFully(segment, header, position);
+            int length = header.getInt(0);
+            int utiLength = header.getShort(Integer.BYTES);
+            if (length <= 0 || length > size - position - Integer.BYTES
+                    || utiLength < 0 || Short.BYTES + utiLength + Integer.BYTES > length) {
+                return position;
+            }
+            ByteBuffer key = ByteBuffer.allocate(utiLength + Integer.BYTES);
+            readFully(segment, key, position + header.capacity());
+            key.flip();
+            byte[] uti = new byte[utiLength];
+            key.get(uti);
+            int version = key.getInt();
+            recordIndex(new VersionKey(new String(uti, StandardCharsets.UTF_8), version), location(segmentId, position));
+            position += Integer.BYTES + length;
+        }
+        return position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of segment at " + (position + buffer.position()));
+            }
+        }
+    }
+
+    private void openActiveSegment() throws IOException {
+        sealedSegments.remove(activeSegmentId);
+        activeSegment = FileChannel.open(segmentPath(activeSegmentId),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeSize = activeSegment.size();
+        activeSegment.position(activeSize);
+    }
+
+    private Path segmentPath(int segmentId) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+    private static long location(int segmentId, long offset) {
+        return ((long) segmentId << 40) | offset;
+    }
+
+    private void recordIndex(VersionKey key, long location) {
+        index.put(key, location);
+        latestVersions.merge(key.uti, key.version, Math::max);
+    }
+
+    /**
+     * Store a version of a trade. Appends it to the log and keeps it in the hot tier.
+     */
+    public void put(String uti, int version, TradeState tradeState) throws IOException {
+        VersionKey key = new VersionKey(uti, version);
+        byte[] utiBytes = uti.getBytes(StandardCharsets.UTF_8);
+        byte[] snapshot = CdmSnapshotStore.toBytes(tradeState);
+        int length = Short.BYTES + utiBytes.length + Integer.BYTES + snapshot.length;
+
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + length);
+        record.putInt(length).putShort((short) utiBytes.length).put(utiBytes).putInt(version).put(snapshot).flip();
+
+        synchronized (this) {
+            if (activeSize > 0 && activeSize + record.remaining() > segmentSize) {
+                rollSegment();
+            }
+            long offset = activeSize;
+            while (record.hasRemaining()) {
+                activeSegment.write(record);
+            }
+            activeSize += Integer.BYTES + length;
+            recordIndex(key, location(activeSegmentId, offset));
+        }
+        putHot(key, tradeState);
+    }
+
+    /**
+     * Store the trade as the next version of its UTI.
+     *
+     * @return the version assigned
+     */
+    public int putNextVersion(TradeState tradeState) throws IOException {
+        String uti = utiOf(tradeState);
+        if (uti == null) {
+            throw new IllegalArgumentException("TradeState has no UTI to store it under");
+        }
+        return putNextVersion(uti, tradeState);
+    }
+
+    /**
+     * Store the trade as the next version of the given UTI, atomically with respect to other writers.
+     *
+     * @return the version assigned
+     */
+    public int putNextVersion(String uti, TradeState tradeState) throws IOException {
+        int version;
+        synchronized (this) {
+            version = latestVersion(uti) + 1;
+            put(uti, version, tradeState);
+        }
+        return version;
+    }
+
+    private void rollSegment() throws IOException {
+        activeSegment.force(false);
+        activeSegment.close();
+        sealedSegments.put(activeSegmentId, MappedJsonInput.map(segmentPath(activeSegmentId)));
+        activeSegmentId++;
+        openActiveSegment();
+    }
+
+    public TradeState get(String uti, int version) throws IOException {
+        VersionKey key = new VersionKey(uti, version);
+        TradeState tradeState = hot.get(key);
+        if (tradeState != null) {
+            return tradeState;
+        }
+        Long location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        tradeState = readRecord(location);
+        putHot(key, tradeState);
+        return tradeState;
+    }
+
+    /**
+     * The most recent version of the trade, or null if the UTI is unknown.
+     */
+    public TradeState getLatest(String uti) throws IOException {
+        Integer version = latestVersions.get(uti);
+        return version == null ? null : get(uti, version);
+    }
+
+    /**
+     * The most recent version number of the trade, 0 if the UTI is unknown.
+     */
+    public int latestVersion(String uti) {
+        return latestVersions.getOrDefault(uti, 0);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    private TradeState readRecord(long location) throws IOException {
+        int segmentId = (int) (location >>> 40);
+        long offset = location & ((1L << 40) - 1);
+
+        ByteBuffer record = null;
+        MappedByteBuffer sealed = sealedSegments.get(segmentId);
+        if (sealed == null) {
+            synchronized (this) {
+                // The segment may have been rolled (sealed) since the lookup above
+                if (segmentId == activeSegmentId) {
+                    ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+                    activeSegment.read(header, offset);
+                    header.flip();
+                    record = ByteBuffer.allocate(Integer.BYTES + header.getInt());
+                    activeSegment.read(record, offset);
+                    record.flip();
+                } else {
+                    sealed = sealedSegments.get(segmentId);
+                }
+            }
+        }
+        if (record == null) {
+            record = sealed.duplicate();
+            record.position((int) offset);
+            record.limit((int) offset + Integer.BYTES + record.getInt((int) offset));
+        }
+        record.getInt();
+        record.position(record.position() + record.getShort() + Integer.BYTES);
+        byte[] snapshot = new byte[record.remaining()];
+        record.get(snapshot);
+        return CdmSnapshotStore.fromBytes(snapshot, TradeState.class);
+    }
+
+    private void putHot(VersionKey key, TradeState tradeState) {
+        if (hot.put(key, tradeState) == null) {
+            hotOrder.add(key);
+            if (hotSize.incrementAndGet() > hotCapacity) {
+                VersionKey oldest = hotOrder.poll();
+                if (oldest != null && hot.remove(oldest) != null) {
+                    hotSize.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Make all appended records durable.
+     */
+    public synchronized void flush() throws IOException {
+        activeSegment.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        activeSegment.force(false);
+        activeSegment.close();
+    }
+
+    /**
+     * The UTI of the trade, or its first trade identifier when none is typed as a UTI.
+     */
+    public static String utiOf(TradeState tradeState) {
+        if (tradeState.getTrade() == null || tradeState.getTrade().getTradeIdentifier() == null) {
+            return null;
+        }
+        List<? extends TradeIdentifier> identifiers = new ArrayList<>(tradeState.getTrade().getTradeIdentifier());
+        identifiers.sort((a, b) -> Boolean.compare(
+                b.getIdentifierType() == TradeIdentifierTypeEnum.UNIQUE_TRANSACTION_IDENTIFIER,
+                a.getIdentifierType() == TradeIdentifierTypeEnum.UNIQUE_TRANSACTION_IDENTIFIER));
+        for (TradeIdentifier identifier : identifiers) {
+            if (identifier.getAssignedIdentifier() != null && !identifier.getAssignedIdentifier().isEmpty()
+                    && identifier.getAssignedIdentifier().get(0).getIdentifier() != null) {
+                return identifier.getAssignedIdentifier().get(0).getIdentifier().getValue();
+            }
+        }
+        return null;
+    }
+
+    private static final class VersionKey {
+        private final String uti;
+        private final int version;
+
+        VersionKey(String uti, int version) {
+            this.uti = uti;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof VersionKey)) {
+                return false;
+            }
+            VersionKey other = (VersionKey) o;
+            return version == other.version && uti.equals(other.uti);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * uti.hashCode() + version;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.regnosys.drr.examples;
+
+import cdm.event.common.TradeState;
+import com.regnosys.drr.examples.util.CdmDocumentLoader;
+import drr.regulation.cftc.rewrite.CFTCPart45TransactionReport;
+import drr.regulation.common.ReportableEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end NEW TRADE pipeline with one virtual thread per trade.
+ *
+ * Each trade runs load, instruction, workflow step, post-processing, reportable events, enrichment, report
+ * and output on its own virtual thread. Only the CPU-heavy part (instruction through report) needs one of a
+ * fixed number of semaphore permits, and each permit comes with its own pooled set of DRR functions. File
+ * reads and report writes happen outside the permit, so blocking I/O overlaps freely with computation and the
+ * number of in-flight trades is not tied to a platform thread pool.
+ *
+ * The number of trades in flight - loaded or being loaded, evaluated or written - is capped separately
+ * (maxInFlight, default four per evaluation permit). A trade's thread is only started once it gets an in-flight
+ * slot, so heap use follows the concurrency, not the number of input files.
+ *
+ * Virtual threads need JDK 21+. On older JDKs the runner falls back to a fixed platform thread pool, one thread
+ * per permit but at least one per core, so it still runs with a bounded thread count - without the cheap
+ * blocking. Each pooled pipeline uses the runtime's shared report generator, so no permit owns a thread pool.
+ */
+public class VirtualThreadPipelineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPipelineRunner.class);
+
+    private final DrrReportingRuntime runtime;
+    private final int maxConcurrentEvaluations;
+    private final Semaphore evaluationPermits;
+    private final int maxInFlight;
+    private final Queue<PipelineFunctions> functionPool = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong reports = new AtomicLong();
+
+    public VirtualThreadPipelineRunner(int maxConcurrentEvaluations) {
+        this(maxConcurrentEvaluations, 4 * maxConcurrentEvaluations);
+    }
+
+    public VirtualThreadPipelineRunner(int maxConcurrentEvaluations, int maxInFlight) {
+        if (maxInFlight < maxConcurrentEvaluations) {
+            throw new IllegalArgumentException("maxInFlight (" + maxInFlight + ") must be at least maxConcurrentEvaluations (" + maxConcurrentEvaluations + ")");
+        }
+        this.runtime = DrrReportingRuntime.get();
+        this.maxConcurrentEvaluations = maxConcurrentEvaluations;
+        this.evaluationPermits = new Semaphore(maxConcurrentEvaluations);
+        this.maxInFlight = maxInFlight;
+        for (int i = 0; i < maxConcurrentEvaluations; i++) {
+            functionPool.add(new PipelineFunctions(runtime));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java VirtualThreadPipelineRunner <trade-json-dir>");
+            System.err.println("  Reports go to the NDJSON report sink with -Ddrr.sink.dir=<dir>, to stdout otherwise");
+            System.err.println("  -Ddrr.pipeline.maxEvaluations=<n> caps concurrent evaluations (default: available processors)");
+            System.err.println("  -Ddrr.pipeline.maxInFlight=<n> caps trades loaded and in progress (default: 4 x maxEvaluations)");
+            System.exit(1);
+        }
+        List<Path> trades;
+        try (Stream<Path> files = Files.walk(Paths.get(args[0]))) {
+            trades = files.filter(p -> p.getFileName().toString().endsWith(".json")).sorted().collect(Collectors.toList());
+        }
+
+        int maxEvaluations = Integer.getInteger("drr.pipeline.maxEvaluations", Runtime.getRuntime().availableProcessors());
+        int maxInFlight = Integer.getInteger("drr.pipeline.maxInFlight", 4 * maxEvaluations);
+        new VirtualThreadPipelineRunner(maxEvaluations, maxInFlight).run(trades);
+    }
+
+    /**
+     * Run every trade through the pipeline and wait for all of them. Reports are emitted through the shared
+     * runtime (see DrrReportingRuntime#emitReport) and flushed at the end. Failures are logged per trade and do
+     * not stop the run.
+     */
+    public void run(List<Path> tradeFiles) throws InterruptedException, IOException {
+        long start = System.currentTimeMillis();
+        logger.info("=== Virtual-thread pipeline: {} trade(s), {} concurrent evaluation(s), {} in flight ===",
+                tradeFiles.size(), evaluationPermits.availablePermits(), maxInFlight);
+
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        ExecutorService executor = newThreadPerTaskExecutor(Math.max(maxConcurrentEvaluations, Runtime.getRuntime().availableProcessors()));
+        try {
+            for (Path tradeFile : tradeFiles) {
+                // Blocks while maxInFlight trades are loaded or in progress
+                inFlight.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            processTrade(tradeFile);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        runtime.flushReports();
+
+        logger.info("=== Virtual-thread pipeline completed: {} succeeded, {} failed, {} report(s) in {}ms ===",
+                succeeded.get(), failed.get(), reports.get(), System.currentTimeMillis() - start);
+    }
+
+    private void processTrade(Path tradeFile) {
+        try {
+            // Blocking I/O - no permit held
+            TradeState tradeState = CdmDocumentLoader.loadTradeState(tradeFile.toString());
+
+            List<CFTCPart45TransactionReport> tradeReports = evaluate(tradeState);
+
+            // Blocking I/O - no permit held
+            for (CFTCPart45TransactionReport report : tradeReports) {
+                runtime.emitReport(report);
+            }
+            reports.addAndGet(tradeReports.size());
+            succeeded.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.error("Failed to process trade {}", tradeFile, e);
+        }
+    }
+
+    private List<CFTCPart45TransactionReport> evaluate(TradeState tradeState) throws InterruptedException {
+        evaluationPermits.acquire();
+        // Holding a permit guarantees a free function set
+        PipelineFunctions functions = functionPool.poll();
+        try {
+            List<ReportableEvent> reportableEvents = functions.pipeline.createNewTradeReportableEvents(tradeState);
+            List<CFTCPart45TransactionReport> tradeReports = new ArrayList<>(reportableEvents.size());
+            for (ReportableEvent reportableEvent : reportableEvents) {
+                tradeReports.add(functions.reporting.generateCftcPart45Report(reportableEvent));
+            }
+            return tradeReports;
+        } finally {
+            functionPool.add(functions);
+            evaluationPermits.release();
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() when running on JDK 21+, a fixed pool of fallbackThreads
+     * platform threads otherwise.
+     */
+    static ExecutorService newThreadPerTaskExecutor(int fallbackThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("⚠ Virtual threads not available on this JDK - using a pool of {} platform threads", fallbackThreads);
+            return Executors.newFixedThreadPool(fallbackThreads);
+        }
+    }
+
+    /**
+     * One permit's own pipeline and report function instances.
+     */
+    private static final class PipelineFunctions {
+        private final CFTCNewTradeAndTerminationReports pipeline;
+        private final ReportingFunctions reporting;
+
+        PipelineFunctions(DrrReportingRuntime runtime) {
+            this.pipeline = runtime.getInstance(CFTCNewTradeAndTerminationReports.class);
+            this.reporting = new ReportingFunctions(runtime.getInjector());
+        }
+    }
+}
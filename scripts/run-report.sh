@@ -0,0 +1,22 @@
+#!/usr/bin/env bash
+# Launch a report generator, using the AppCDS archive from train-appcds.sh when present.
+#
+#   DRR_CLASSPATH=<application classpath> scripts/run-report.sh <main-class> [args...]
+#   e.g. scripts/run-report.sh com.regnosys.drr.examples.CFTCNewTradeAndTerminationReports ALL
+set -euo pipefail
+
+: "${DRR_CLASSPATH:?Set DRR_CLASSPATH to the application classpath}"
+ARCHIVE="${DRR_APPCDS_ARCHIVE:-$(dirname "$0")/../build/drr-reports.jsa}"
+
+if [ $# -lt 1 ]; then
+    echo "Usage: $0 <main-class> [args...]" >&2
+    exit 1
+fi
+
+CDS_OPTS=()
+if [ -f "$ARCHIVE" ]; then
+    # -Xshare:auto falls back to normal class loading if the archive does not match this JVM / classpath
+    CDS_OPTS=(-XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto)
+fi
+
+exec java ${CDS_OPTS[@]+"${CDS_OPTS[@]}"} ${JAVA_OPTS:-} -cp "$DRR_CLASSPATH" "$@"
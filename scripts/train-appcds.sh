@@ -0,0 +1,20 @@
+#!/usr/bin/env bash
+# Dump a dynamic AppCDS archive from a representative report run (JDK 13+).
+#
+#   DRR_CLASSPATH=<application classpath> scripts/train-appcds.sh [training-trade-json]
+#
+# The archive is only used when run-report.sh is launched with the same classpath and JDK,
+# so re-train after every dependency or JDK upgrade.
+set -euo pipefail
+
+: "${DRR_CLASSPATH:?Set DRR_CLASSPATH to the application classpath}"
+ARCHIVE="${DRR_APPCDS_ARCHIVE:-$(dirname "$0")/../build/drr-reports.jsa}"
+
+mkdir -p "$(dirname "$ARCHIVE")"
+rm -f "$ARCHIVE"
+
+java -XX:ArchiveClassesAtExit="$ARCHIVE" \
+     -cp "$DRR_CLASSPATH" \
+     com.regnosys.drr.examples.AppCdsTraining "$@"
+
+echo "AppCDS archive written to $ARCHIVE"
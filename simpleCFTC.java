@@ -5,10 +5,10 @@ import cdm.base.staticdata.party.Party;
 import cdm.event.common.ReportableEvent;
 import cdm.event.common.Trade;
 import cdm.event.common.TradeState;
-import com.google.inject.Guice;
 import com.google.inject.Inject;
-import com.google.inject.Injector;
-import com.regnosys.drr.DrrRuntimeModuleExternalApi;
+import com.regnosys.drr.examples.util.CompressedCdmInput;
+import com.regnosys.drr.examples.util.FpmlTradeStateReader;
+import com.regnosys.drr.examples.util.MappedJsonInput;
 import com.regnosys.drr.examples.util.ResourcesUtils;
 import com.rosetta.model.lib.RosettaModelObject;
 import com.rosetta.model.lib.RosettaModelObjectBuilder;
@@ -22,8 +22,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * PROPER way to implement DRR for CFTC Part 45 reporting.
@@ -49,16 +52,75 @@ public class SimplifiedCFTCReportingService {
     public static void main(String[] args) throws IOException {
         if (args.length < 1) {
             System.err.println("Usage: java SimplifiedCFTCReportingService <trade-json-path>");
+            System.err.println("       java SimplifiedCFTCReportingService --ndjson <extract.ndjson | extract.ndjson.gz | bundle.zip>");
+            System.err.println("       java SimplifiedCFTCReportingService --fpml <fpml-5-10-confirmation.xml>");
             System.err.println("Example: 'result-json-files/fpml-5-10/products/rates/USD-Vanilla-swap.json'");
             System.exit(1);
         }
 
-        String tradePath = args[0];
+        SimplifiedCFTCReportingService service = DrrReportingRuntime.get().getInstance(SimplifiedCFTCReportingService.class);
 
-        Injector injector = Guice.createInjector(new DrrRuntimeModuleExternalApi());
-        SimplifiedCFTCReportingService service = injector.getInstance(SimplifiedCFTCReportingService.class);
+        if ("--ndjson".equals(args[0])) {
+            if (args.length < 2) {
+                System.err.println("Missing NDJSON extract path");
+                System.exit(1);
+            }
+            service.generateCFTCReports(Paths.get(args[1]));
+        } else if ("--fpml".equals(args[0])) {
+            if (args.length < 2) {
+                System.err.println("Missing FpML document path");
+                System.exit(1);
+            }
+            service.generateCFTCReportsFromFpml(Paths.get(args[1]));
+        } else {
+            service.generateCFTCReport(args[0]);
+        }
+    }
+
+    /**
+     * Batch mode - generate a report for every TradeState / WorkflowStep record of a newline-delimited JSON extract.
+     * Records are streamed one at a time, so memory use does not grow with the size of the extract.
+     * Gzip files and zip bundles (one record stream per entry) are decompressed on the fly.
+     */
+    public void generateCFTCReports(Path ndjsonPath) throws IOException {
+        logger.info("=== Starting NDJSON CFTC Part 45 batch: {} ===", ndjsonPath);
+
+        AtomicLong failed = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        long processed = CompressedCdmInput.forEachTradeState(ndjsonPath, tradeState -> {
+            try {
+                generateCFTCReport(tradeState);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                logger.error("Failed to generate CFTC report for NDJSON record", e);
+            }
+        }, (source, line, cause) -> {
+            skipped.incrementAndGet();
+            logger.error("Skipped unreadable record at {} line {}: {}", source, line, cause.getMessage());
+        });
+
+        logger.info("=== NDJSON batch completed: {} record(s), {} failed, {} unreadable record(s) skipped ===",
+                processed, failed.get(), skipped.get());
+    }
 
-        service.generateCFTCReport(tradePath);
+    /**
+     * FpML mode - stream an FpML 5.10 confirmation straight into the DRR pipeline, one report per trade,
+     * without converting it to CDM JSON first.
+     */
+    public void generateCFTCReportsFromFpml(Path fpmlPath) throws IOException {
+        logger.info("=== Starting FpML CFTC Part 45 reporting: {} ===", fpmlPath);
+
+        AtomicLong failed = new AtomicLong();
+        long processed = FpmlTradeStateReader.forEachTradeState(fpmlPath, tradeState -> {
+            try {
+                generateCFTCReport(tradeState);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                logger.error("Failed to generate CFTC report for FpML trade", e);
+            }
+        });
+
+        logger.info("=== FpML reporting completed: {} trade(s), {} failed ===", processed, failed.get());
     }
 
     /**
@@ -73,9 +135,16 @@ public class SimplifiedCFTCReportingService {
         logger.info("=== Starting PROPER DRR CFTC Part 45 Reporting ===");
         logger.info("Trade file: {}", tradePath);
 
+        // Step 1: Load your CDM TradeState (this comes from your trading system)
+        TradeState tradeState = loadTradeState(tradePath);
+        generateCFTCReport(tradeState);
+    }
+
+    /**
+     * Run the DRR pipeline (steps 2-6) for an already loaded TradeState.
+     */
+    public void generateCFTCReport(TradeState tradeState) {
         try {
-            // Step 1: Load your CDM TradeState (this comes from your trading system)
-            TradeState tradeState = loadTradeState(tradePath);
             logTradeStateSummary(tradeState);
 
             // Step 2: Create ReportableEvent from TradeState using DRR
@@ -130,9 +199,11 @@ public class SimplifiedCFTCReportingService {
                     throw new IllegalArgumentException("File not found: " + tradePath);
                 }
                 
-                com.fasterxml.jackson.databind.ObjectMapper mapper = 
-                    com.regnosys.rosetta.common.serialisation.RosettaObjectMapper.getNewRosettaObjectMapper();
-                tradeState = mapper.readValue(file, TradeState.class);
+                if (CompressedCdmInput.detectFormat(file.toPath()) == CompressedCdmInput.Format.PLAIN) {
+                    tradeState = MappedJsonInput.readValue(file.toPath(), TradeState.class);
+                } else {
+                    tradeState = CompressedCdmInput.readSingleTradeState(file.toPath());
+                }
             } else {
                 // Load from classpath/resources (build files)
                 logger.info("Loading from classpath: {}", tradePath);
@@ -464,12 +535,15 @@ public class SimplifiedCFTCReportingService {
         logger.info("Event Timestamp: {}", report.getEventTimestamp());
         logger.info("Execution Timestamp: {}", report.getExecutionTimestamp());
         
-        // Print full JSON report
+        // Full JSON report: an NDJSON line in the report sink if one is configured, logged pretty-printed otherwise
         try {
-            com.fasterxml.jackson.databind.ObjectMapper mapper = 
-                com.regnosys.rosetta.common.serialisation.RosettaObjectMapper.getNewRosettaObjectMapper();
-            String jsonReport = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(report);
-            logger.info("Full CFTC Part 45 Report:\n{}", jsonReport);
+            DrrReportingRuntime runtime = DrrReportingRuntime.get();
+            if (runtime.getReportSink() != null) {
+                runtime.emitReport(report);
+                logger.info("Full CFTC Part 45 Report written to {}", runtime.getReportSink().getCurrentFile());
+            } else {
+                logger.info("Full CFTC Part 45 Report:\n{}", runtime.writeReport(report));
+            }
         } catch (Exception e) {
             logger.error("Failed to serialize report to JSON", e);
         }